@@ -0,0 +1,530 @@
+package it.uniroma1.di.tmancini.teaching.ai.search.cargo;
+
+import java.util.*;
+
+/**
+ * Planning graph over integer ids, computing the set level heuristics with
+ * bitwise operations instead of sets of named propositions and actions.
+ *
+ * Proposition 2 * f stands for fluent f and 2 * f + 1 for its negation, so the
+ * opposite of proposition p is p ^ 1. Actions are numbered as given, followed
+ * by one persistence action per proposition. Every layer is a bitset: over the
+ * propositions for a proposition layer, over the actions for an action layer.
+ *
+ * Two actions are mutex if one of them mentions ( as a precondition or as an
+ * effect ) the opposite of a proposition the other mentions: inconsistent
+ * effects, interference or competing needs on opposite propositions. That does
+ * not depend on the layer, so it is computed once, as a bit matrix. Two
+ * propositions of a layer are mutex if they are opposite or if every action
+ * of the previous layer supporting the first is mutex with every one
+ * supporting the second.
+ *
+ * Static mutex groups ( fluents of which at most one holds in any reachable
+ * state, see MutexGroups ) add to both relations: two propositions standing
+ * for fluents of the same group are mutex in every layer without looking at
+ * their supporters, and so are two actions requiring, or making true, two
+ * such propositions.
+ */
+public class BitPlanningGraph {
+
+        private final int nb_propositions;
+        private final int nb_actions;
+        private final int proposition_words;
+        private final int action_words;
+        private final int[][] preconditions;
+        private final int[][] effects;
+        private final long[][] action_mutex; // action -> mutex actions
+        private final long[][] static_mutex; // proposition -> propositions in the same mutex group
+        private final long[][] achievers; // proposition -> actions with it among their effects
+        private final int[][] consumers; // proposition -> actions with it among their preconditions
+        private final int[] precondition_counts;
+        private final int max_depth;
+        private final boolean goal_directed;
+        private final ThreadLocal<Workspace> workspace = ThreadLocal.withInitial(Workspace::new);
+
+        /**
+         * Builds the static part of the graph.
+         *
+         * @param nb_fluents    the number of fluents.
+         * @param preconditions the preconditions of every action, as propositions.
+         * @param effects       the effects of every action, as propositions.
+         * @param mutex_groups  the static mutex groups, as fluents.
+         * @param max_depth     the maximum number of action layers.
+         * @param goal_directed whether to stop expanding as soon as the set level is
+         *                      known, computing only the mutexes between goals.
+         */
+        public BitPlanningGraph(int nb_fluents, int[][] preconditions, int[][] effects, int[][] mutex_groups,
+                        int max_depth, boolean goal_directed) {
+                this.nb_propositions = 2 * nb_fluents;
+                this.nb_actions = preconditions.length + nb_propositions;
+                this.proposition_words = (nb_propositions + 63) >>> 6;
+                this.action_words = (nb_actions + 63) >>> 6;
+                this.max_depth = max_depth;
+                this.goal_directed = goal_directed;
+
+                this.preconditions = new int[nb_actions][];
+                this.effects = new int[nb_actions][];
+                for (int a = 0; a < preconditions.length; a++) {
+                        this.preconditions[a] = Arrays.stream(preconditions[a]).distinct().toArray();
+                        this.effects[a] = Arrays.stream(effects[a]).distinct().toArray();
+                }
+                for (int p = 0; p < nb_propositions; p++) {
+                        this.preconditions[preconditions.length + p] = new int[] { p };
+                        this.effects[preconditions.length + p] = new int[] { p };
+                }
+
+                long[][] mentioning = new long[nb_propositions][action_words];
+                this.achievers = new long[nb_propositions][action_words];
+                for (int a = 0; a < nb_actions; a++) {
+                        for (int p : this.preconditions[a]) {
+                                mentioning[p][a >>> 6] |= 1L << a;
+                        }
+                        for (int p : this.effects[a]) {
+                                mentioning[p][a >>> 6] |= 1L << a;
+                                achievers[p][a >>> 6] |= 1L << a;
+                        }
+                }
+
+                int[] counts = new int[nb_propositions];
+                this.precondition_counts = new int[nb_actions];
+                for (int a = 0; a < nb_actions; a++) {
+                        precondition_counts[a] = this.preconditions[a].length;
+                        for (int p : this.preconditions[a]) {
+                                counts[p]++;
+                        }
+                }
+                this.consumers = new int[nb_propositions][];
+                for (int p = 0; p < nb_propositions; p++) {
+                        consumers[p] = new int[counts[p]];
+                        counts[p] = 0;
+                }
+                for (int a = 0; a < nb_actions; a++) {
+                        for (int p : this.preconditions[a]) {
+                                consumers[p][counts[p]++] = a;
+                        }
+                }
+
+                this.static_mutex = new long[nb_propositions][proposition_words];
+                for (int[] group : mutex_groups) {
+                        for (int f1 : group) {
+                                for (int f2 : group) {
+                                        if (f1 != f2) {
+                                                set(static_mutex[positive(f1)], positive(f2));
+                                        }
+                                }
+                        }
+                }
+
+                // Actions requiring, or achieving, a proposition statically mutex with p
+                long[][] requiring_mutex = new long[nb_propositions][];
+                long[][] achieving_mutex = new long[nb_propositions][];
+                for (int[] group : mutex_groups) {
+                        for (int f1 : group) {
+                                int p = positive(f1);
+                                requiring_mutex[p] = new long[action_words];
+                                achieving_mutex[p] = new long[action_words];
+                                for (int f2 : group) {
+                                        if (f2 != f1) {
+                                                for (int a : consumers[positive(f2)]) {
+                                                        set(requiring_mutex[p], a);
+                                                }
+                                                or(achieving_mutex[p], achievers[positive(f2)]);
+                                        }
+                                }
+                        }
+                }
+
+                this.action_mutex = new long[nb_actions][action_words];
+                for (int a = 0; a < nb_actions; a++) {
+                        for (int p : this.preconditions[a]) {
+                                or(action_mutex[a], mentioning[p ^ 1]);
+                                if (requiring_mutex[p] != null) {
+                                        or(action_mutex[a], requiring_mutex[p]);
+                                }
+                        }
+                        for (int p : this.effects[a]) {
+                                or(action_mutex[a], mentioning[p ^ 1]);
+                                if (achieving_mutex[p] != null) {
+                                        or(action_mutex[a], achieving_mutex[p]);
+                                }
+                        }
+                }
+        }
+
+        /**
+         * The proposition standing for the given fluent being true.
+         *
+         * @param fluent the index of the fluent.
+         * @return the proposition id.
+         */
+        public static int positive(int fluent) {
+                return 2 * fluent;
+        }
+
+        /**
+         * The proposition standing for the given fluent being false.
+         *
+         * @param fluent the index of the fluent.
+         * @return the proposition id.
+         */
+        public static int negative(int fluent) {
+                return 2 * fluent + 1;
+        }
+
+        private static void or(long[] into, long[] bits) {
+                for (int i = 0; i < into.length; i++) {
+                        into[i] |= bits[i];
+                }
+        }
+
+        private static boolean get(long[] bits, int i) {
+                return (bits[i >>> 6] & (1L << i)) != 0;
+        }
+
+        private static void set(long[] bits, int i) {
+                bits[i >>> 6] |= 1L << i;
+        }
+
+        private static void clear(long[] bits, int i) {
+                bits[i >>> 6] &= ~(1L << i);
+        }
+
+        /**
+         * Returns the set level of the goals from the given state: the first level
+         * whose propositions contain the goals with no two of them mutex.
+         *
+         * As in the original string-based graph, level i is judged by the mutexes
+         * computed with action layer i, i.e. those of proposition layer i + 1; when
+         * the goals first appear in the last layer, which has no mutexes, they
+         * count as unreachable.
+         *
+         * Layers are expanded by counting, for every action, the preconditions
+         * not yet reached: only the actions consuming the propositions new to a
+         * layer are looked at. They are built in buffers of the calling thread,
+         * kept between calls.
+         *
+         * Goal-directed, the expansion stops at the first layer that settles the
+         * value, and only the mutexes between goals are computed, once the goals
+         * are all there. Otherwise the whole graph is built, until its
+         * propositions level off or max_depth action layers, with the mutexes of
+         * every layer ( see Workspace.update_mutex ), and then searched.
+         *
+         * @param state the bit-packed state, one bit per fluent.
+         * @param goals the goal propositions.
+         * @return the set level, or Integer.MAX_VALUE if the goals are unreachable.
+         */
+        public int calculate_set_level(long[] state, int[] goals) {
+                Workspace w = workspace.get();
+                w.start(state);
+                if (goal_directed) {
+                        for (int i = 0; i < max_depth; i++) {
+                                boolean grown = w.next_layer(i);
+                                if (holds_all(w.propositions[i], goals) && !w.goals_mutex(i, goals)) {
+                                        return i;
+                                }
+                                if (!grown) {
+                                        return Integer.MAX_VALUE;
+                                }
+                        }
+                        return Integer.MAX_VALUE;
+                }
+
+                int layers = 1;
+                for (int i = 0; i < max_depth; i++) {
+                        boolean grown = w.next_layer(i);
+                        layers++;
+                        w.update_mutex(i, w.propositions[i + 1], w.actions[i]);
+                        if (!grown) {
+                                break;
+                        }
+                }
+                for (int i = 0; i < layers; i++) {
+                        if (holds_all(w.propositions[i], goals)) {
+                                if (i == layers - 1) {
+                                        return Integer.MAX_VALUE;
+                                }
+                                if (!any_mutex(w.mutex[i], goals)) {
+                                        return i;
+                                }
+                        }
+                }
+                return Integer.MAX_VALUE;
+        }
+
+        private static boolean holds_all(long[] propositions, int[] wanted) {
+                for (int p : wanted) {
+                        if (!get(propositions, p)) {
+                                return false;
+                        }
+                }
+                return true;
+        }
+
+        /**
+         * The buffers of a thread: the layers of the last graph built, the
+         * mutexes of its proposition layers ( or, goal-directed, whether two goals
+         * are mutex there ) with the actions they were computed from, and the
+         * counters used to expand it. A layer whose actions are those of the same
+         * layer last time, as for sibling states once their graphs converge, keeps
+         * its mutexes.
+         */
+        private class Workspace {
+                long[][] propositions = new long[max_depth + 1][];
+                long[][] actions = new long[max_depth][];
+                long[][][] mutex = new long[max_depth][][];
+                long[][] mutex_actions = new long[max_depth][]; // null until mutex[i] is computed
+                boolean[] goals_mutex = new boolean[max_depth];
+                long[][] goals_mutex_actions = new long[max_depth][]; // null until goals_mutex[i] is computed
+                int[] goals_mutex_for;
+                int[] missing = new int[nb_actions]; // preconditions not yet reached
+                int[] fresh = new int[nb_propositions];
+                int[] next_fresh = new int[nb_propositions];
+                int nb_fresh;
+                int[] enabled = new int[nb_actions];
+                long[] compatible = new long[action_words];
+                long[] changed = new long[proposition_words];
+
+                /**
+                 * Starts a graph from the given state: proposition layer 0.
+                 *
+                 * @param state the bit-packed state.
+                 */
+                void start(long[] state) {
+                        System.arraycopy(precondition_counts, 0, missing, 0, nb_actions);
+                        long[] current = layer(propositions, 0, proposition_words);
+                        Arrays.fill(current, 0);
+                        nb_fresh = 0;
+                        for (int f = 0; f < nb_propositions / 2; f++) {
+                                int p = CargoState.is_set(state, f) ? positive(f) : negative(f);
+                                set(current, p);
+                                fresh[nb_fresh++] = p;
+                        }
+                }
+
+                /**
+                 * Builds action layer i and proposition layer i + 1.
+                 *
+                 * @param i the index of the action layer.
+                 * @return false if the propositions leveled off.
+                 */
+                boolean next_layer(int i) {
+                        long[] layer_actions = layer(actions, i, action_words);
+                        int nb_enabled = 0;
+                        if (i == 0) {
+                                Arrays.fill(layer_actions, 0);
+                                for (int a = 0; a < nb_actions; a++) {
+                                        if (missing[a] == 0) {
+                                                set(layer_actions, a);
+                                                enabled[nb_enabled++] = a;
+                                        }
+                                }
+                        } else {
+                                System.arraycopy(actions[i - 1], 0, layer_actions, 0, action_words);
+                        }
+                        for (int k = 0; k < nb_fresh; k++) {
+                                for (int a : consumers[fresh[k]]) {
+                                        if (--missing[a] == 0) {
+                                                set(layer_actions, a);
+                                                enabled[nb_enabled++] = a;
+                                        }
+                                }
+                        }
+
+                        long[] next = layer(propositions, i + 1, proposition_words);
+                        System.arraycopy(propositions[i], 0, next, 0, proposition_words);
+                        int nb_next_fresh = 0;
+                        for (int k = 0; k < nb_enabled; k++) {
+                                for (int p : effects[enabled[k]]) {
+                                        if (!get(next, p)) {
+                                                set(next, p);
+                                                next_fresh[nb_next_fresh++] = p;
+                                        }
+                                }
+                        }
+
+                        int[] swap = fresh;
+                        fresh = next_fresh;
+                        next_fresh = swap;
+                        nb_fresh = nb_next_fresh;
+                        return nb_fresh > 0;
+                }
+
+                /**
+                 * Whether two of the goals, all in proposition layer i, are mutex in
+                 * proposition layer i + 1.
+                 *
+                 * @param i     the index of the action layer.
+                 * @param goals the goal propositions.
+                 * @return true if two goals are mutex.
+                 */
+                boolean goals_mutex(int i, int[] goals) {
+                        long[] layer_actions = actions[i];
+                        long[] previous = goals_mutex_actions[i];
+                        if (goals == goals_mutex_for && previous != null && Arrays.equals(previous, layer_actions)) {
+                                return goals_mutex[i];
+                        }
+                        if (goals != goals_mutex_for) {
+                                Arrays.fill(goals_mutex_actions, null);
+                                goals_mutex_for = goals;
+                        }
+
+                        boolean any = false;
+                        for (int k = 0; k < goals.length && !any; k++) {
+                                int p1 = goals[k];
+                                compatible(p1, layer_actions);
+                                for (int l = k + 1; l < goals.length && !any; l++) {
+                                        int p2 = goals[l];
+                                        any = p2 != p1 && (p2 == (p1 ^ 1) || get(static_mutex[p1], p2)
+                                                        || !intersects(achievers[p2], compatible));
+                                }
+                        }
+                        goals_mutex[i] = any;
+                        if (goals_mutex_actions[i] == null) {
+                                goals_mutex_actions[i] = layer_actions.clone();
+                        } else {
+                                System.arraycopy(layer_actions, 0, goals_mutex_actions[i], 0, action_words);
+                        }
+                        return any;
+                }
+
+                /**
+                 * Sets compatible to the actions of the layer not mutex with some
+                 * supporter of p1.
+                 */
+                private void compatible(int p1, long[] layer_actions) {
+                        Arrays.fill(compatible, 0);
+                        long[] a1 = achievers[p1];
+                        for (int w = 0; w < action_words; w++) {
+                                for (long bits = a1[w] & layer_actions[w]; bits != 0; bits &= bits - 1) {
+                                        long[] row = action_mutex[(w << 6) + Long.numberOfTrailingZeros(bits)];
+                                        for (int v = 0; v < action_words; v++) {
+                                                compatible[v] |= ~row[v] & layer_actions[v];
+                                        }
+                                }
+                        }
+                }
+
+                private long[] layer(long[][] layers, int i, int words) {
+                        if (layers[i] == null) {
+                                layers[i] = new long[words];
+                        }
+                        return layers[i];
+                }
+
+                /**
+                 * Brings mutex[i] up to date with the given proposition layer and the
+                 * actions of the previous one. The mutexes between two propositions
+                 * only change if the supporters of one of them do, i.e. if it is an
+                 * effect of an action that entered or left the action layer since
+                 * mutex[i] was last computed.
+                 *
+                 * @param i                 the index of the action layer.
+                 * @param layer_propositions the propositions of layer i + 1.
+                 * @param layer_actions     the actions of layer i.
+                 */
+                private void update_mutex(int i, long[] layer_propositions, long[] layer_actions) {
+                        if (mutex[i] == null) {
+                                mutex[i] = new long[nb_propositions][proposition_words];
+                        }
+                        long[][] rows = mutex[i];
+                        long[] previous = mutex_actions[i];
+                        if (previous != null) {
+                                Arrays.fill(changed, 0);
+                                boolean any = false;
+                                for (int w = 0; w < action_words; w++) {
+                                        for (long bits = previous[w] ^ layer_actions[w]; bits != 0; bits &= bits - 1) {
+                                                any = true;
+                                                for (int p : effects[(w << 6) + Long.numberOfTrailingZeros(bits)]) {
+                                                        set(changed, p);
+                                                }
+                                        }
+                                }
+                                if (!any) {
+                                        return;
+                                }
+                                int nb_changed = 0;
+                                int nb_layer = 0;
+                                for (int w = 0; w < proposition_words; w++) {
+                                        changed[w] &= layer_propositions[w];
+                                        nb_changed += Long.bitCount(changed[w]);
+                                        nb_layer += Long.bitCount(layer_propositions[w]);
+                                }
+                                if (2 * nb_changed < nb_layer) {
+                                        for (int w = 0; w < proposition_words; w++) {
+                                                for (long bits = changed[w]; bits != 0; bits &= bits - 1) {
+                                                        int p1 = (w << 6) + Long.numberOfTrailingZeros(bits);
+                                                        update_row(rows, p1, 0, layer_propositions, layer_actions);
+                                                }
+                                        }
+                                        System.arraycopy(layer_actions, 0, previous, 0, action_words);
+                                        return;
+                                }
+                        }
+
+                        for (int w = 0; w < proposition_words; w++) {
+                                for (long bits = layer_propositions[w]; bits != 0; bits &= bits - 1) {
+                                        Arrays.fill(rows[(w << 6) + Long.numberOfTrailingZeros(bits)], 0);
+                                }
+                        }
+                        for (int w = 0; w < proposition_words; w++) {
+                                for (long bits = layer_propositions[w]; bits != 0; bits &= bits - 1) {
+                                        int p1 = (w << 6) + Long.numberOfTrailingZeros(bits);
+                                        update_row(rows, p1, p1 + 1, layer_propositions, layer_actions);
+                                }
+                        }
+                        mutex_actions[i] = layer_actions.clone();
+                }
+
+                /**
+                 * Computes whether p1 is mutex with every proposition p2 >= from of
+                 * the layer, setting or clearing both rows[p1][p2] and rows[p2][p1].
+                 */
+                private void update_row(long[][] rows, int p1, int from, long[] layer_propositions,
+                                long[] layer_actions) {
+                        compatible(p1, layer_actions);
+                        for (int w = from >>> 6; w < proposition_words; w++) {
+                                long bits = layer_propositions[w];
+                                if (w == from >>> 6) {
+                                        bits &= -1L << from;
+                                }
+                                for (; bits != 0; bits &= bits - 1) {
+                                        int p2 = (w << 6) + Long.numberOfTrailingZeros(bits);
+                                        if (p2 == p1) {
+                                                continue;
+                                        }
+                                        boolean is_mutex = p2 == (p1 ^ 1) || get(static_mutex[p1], p2);
+                                        if (!is_mutex) {
+                                                is_mutex = !intersects(achievers[p2], compatible);
+                                        }
+                                        if (is_mutex) {
+                                                set(rows[p1], p2);
+                                                set(rows[p2], p1);
+                                        } else {
+                                                clear(rows[p1], p2);
+                                                clear(rows[p2], p1);
+                                        }
+                                }
+                        }
+                }
+        }
+
+        private static boolean intersects(long[] a, long[] b) {
+                for (int i = 0; i < a.length; i++) {
+                        if ((a[i] & b[i]) != 0) {
+                                return true;
+                        }
+                }
+                return false;
+        }
+
+        private static boolean any_mutex(long[][] mutex, int[] goals) {
+                for (int p1 : goals) {
+                        for (int p2 : goals) {
+                                if (p1 != p2 && mutex[p1] != null && get(mutex[p1], p2)) {
+                                        return true;
+                                }
+                        }
+                }
+                return false;
+        }
+}
@@ -1,22 +1,37 @@
 package it.uniroma1.di.tmancini.teaching.ai.search.cargo;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SplittableRandom;
 import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import it.uniroma1.di.tmancini.teaching.ai.search.ARAstarExplorer;
 import it.uniroma1.di.tmancini.teaching.ai.search.AstarExplorer;
 import it.uniroma1.di.tmancini.teaching.ai.search.BFSExplorer;
 import it.uniroma1.di.tmancini.teaching.ai.search.BestFirstGreedyExplorer;
+import it.uniroma1.di.tmancini.teaching.ai.search.BidirectionalExplorer;
+import it.uniroma1.di.tmancini.teaching.ai.search.CompactAstarExplorer;
 import it.uniroma1.di.tmancini.teaching.ai.search.DFSExplorer;
+import it.uniroma1.di.tmancini.teaching.ai.search.ExternalBFSExplorer;
+import it.uniroma1.di.tmancini.teaching.ai.search.HDAstarExplorer;
+import it.uniroma1.di.tmancini.teaching.ai.search.HeuristicCache;
+import it.uniroma1.di.tmancini.teaching.ai.search.IDAstarExplorer;
 import it.uniroma1.di.tmancini.teaching.ai.search.MinCostExplorer;
+import it.uniroma1.di.tmancini.teaching.ai.search.OpenAddressingClosedList;
+import it.uniroma1.di.tmancini.teaching.ai.search.ParallelBFSExplorer;
 import it.uniroma1.di.tmancini.teaching.ai.search.Problem;
 import it.uniroma1.di.tmancini.teaching.ai.search.Action;
 import it.uniroma1.di.tmancini.teaching.ai.search.SearchStateExplorer;
+import it.uniroma1.di.tmancini.teaching.ai.search.State;
+import it.uniroma1.di.tmancini.teaching.ai.search.SuccessorGenerator;
 import it.uniroma1.di.tmancini.teaching.ai.search.cargo.CargoPlanningGraph;
 
 import picocli.CommandLine;
@@ -40,10 +55,44 @@ public class Cargo extends Problem implements Callable<Integer> {
                 UNMET_GOALS, SET_LEVEL
         }
 
+        /**
+         * Enum defining the possible closed lists: the framework's HashSet of
+         * states, or a flat open-addressing table of packed states.
+         */
+        public static enum ClosedLists {
+                HASH_SET, OPEN_ADDRESSING
+        }
+
+        /**
+         * Enum defining how A* and min-cost search keep their nodes: as SearchNode
+         * objects or in the parallel arrays of a NodeStore.
+         */
+        public static enum NodeStores {
+                OBJECTS, COMPACT
+        }
+
+        /**
+         * Enum defining the possible state encodings: one boolean per fluent
+         * (CargoState) or one finite-domain variable per plane and cargo
+         * (CargoSasState).
+         */
+        public static enum Encodings {
+                BOOLEAN, SAS
+        }
+
+        /**
+         * Enum defining how SET_LEVEL expands its planning graph: completely, with
+         * the mutexes of every layer, or only until the set level is known, with
+         * the mutexes between goals.
+         */
+        public static enum PlanningGraphs {
+                FULL, GOAL_DIRECTED
+        }
+
         @CommandLine.Option(names = { "--algos",
                         "--algorithms" }, required = true, split = ",", description = "The algorithms to use, as a double quoted comma-separated list. Valid values are"
                                         +
-                                        "{BFS, DFS, MINCOST, A*:<heuristics>, BFG:<heuristics>}, where" +
+                                        "{BFS, PBFS, EBFS, DFS, MINCOST, A*:<heuristics>, BFG:<heuristics>, HDA*:<heuristics>, IDA*:<heuristics>, ARA*:<heuristics>, BIDIR}, where" +
                                         "<heuristics> can be UNMET_GOALS or OTHER")
         private String[] algos;
 
@@ -67,6 +116,73 @@ public class Cargo extends Problem implements Callable<Integer> {
 
         private long seed;
 
+        @CommandLine.Option(names = { "-e",
+                        "--encoding" }, defaultValue = "BOOLEAN", description = "The state encoding, either BOOLEAN (one bit per fluent) or SAS (one small integer per plane and cargo)")
+
+        private Encodings encoding;
+
+        @CommandLine.Option(names = {
+                        "--closed" }, defaultValue = "OPEN_ADDRESSING", description = "The closed list, either HASH_SET or OPEN_ADDRESSING (packed states in a flat table)")
+
+        private ClosedLists closed_list;
+
+        @CommandLine.Option(names = {
+                        "--nodes" }, defaultValue = "OBJECTS", description = "The node storage of A* and MINCOST, either OBJECTS (one SearchNode per node) or COMPACT (parallel primitive arrays)")
+
+        private NodeStores node_store;
+
+        @CommandLine.Option(names = {
+                        "--planning-graph" }, defaultValue = "GOAL_DIRECTED", description = "The planning graph of SET_LEVEL, either FULL (expanded until it levels off) or GOAL_DIRECTED (expanded until the set level is known)")
+
+        private PlanningGraphs planning_graph;
+
+        @CommandLine.Option(names = { "-t",
+                        "--threads" }, defaultValue = "0", description = "The number of worker threads of the parallel algorithms, 0 for one per available processor")
+
+        private int threads;
+
+        @CommandLine.Option(names = {
+                        "--transposition-table" }, defaultValue = "0", description = "The maximum number of states in the IDA* transposition table, 0 to disable it")
+
+        private int transposition_table;
+
+        @CommandLine.Option(names = {
+                        "--weight" }, defaultValue = "5", description = "The initial weight of the heuristics in ARA*")
+
+        private double weight;
+
+        @CommandLine.Option(names = {
+                        "--weight-step" }, defaultValue = "0.5", description = "How much ARA* lowers the weight after each improved plan")
+
+        private double weight_step;
+
+        @CommandLine.Option(names = {
+                        "--time-budget" }, defaultValue = "0", description = "The time in milliseconds ARA* may spend improving its plan, 0 for no limit")
+
+        private long time_budget;
+
+        @CommandLine.Option(names = {
+                        "--scratch-dir" }, description = "The directory where external BFS keeps its layers, the system temporary directory if not given")
+
+        private File scratch_dir;
+
+        @CommandLine.Option(names = {
+                        "--partitions" }, defaultValue = "64", description = "The number of hash partitions of every external BFS layer")
+
+        private int partitions;
+
+        @CommandLine.Option(names = {
+                        "--deferred-heuristic" }, defaultValue = "false", description = "Order the children of a node by the heuristics of their parent and compute their own only when they are dequeued")
+
+        private boolean deferred_heuristic;
+
+        @CommandLine.Option(names = {
+                        "--heuristic-cache" }, defaultValue = "64", description = "The memory in MB of the cache of SET_LEVEL values, shared by all the runs, 0 to disable it")
+
+        private int heuristic_cache;
+
+        private Map<Cargo.Heuristics, HeuristicCache> heuristic_caches = new EnumMap<>(Cargo.Heuristics.class);
+
         private Cargo.Heuristics h;
         private String[] planes;
         private String[] cargoes;
@@ -75,14 +191,27 @@ public class Cargo extends Problem implements Callable<Integer> {
         private ArrayList<String> at;
         private ArrayList<String> goal;
         private ArrayList<Integer> goal_fluents;
+        private long[] goal_mask;
+        private long[] zobrist_keys;
 
         private HashMap<Integer, String> object_number_map = new HashMap<Integer, String>();
         private int state_size;
-        private char[] initial_state;
+        private long[] initial_state;
 
         private static ArrayList<String> predicates_verbose = new ArrayList<>();
         private HashMap<String, Integer> predicates_with_index_objects = new HashMap<>();
 
+        private int sas_variables;
+        private int[] fluent_variable;
+        private int[] fluent_value;
+        private long[] initial_sas_state;
+        private int[] sas_goal_variables;
+        private int[] sas_goal_values;
+
+        private SuccessorGenerator<CargoAction> successor_generator;
+
+        private MutexGroups mutex_groups;
+
         private CargoPlanningGraph cpg;
 
         /**
@@ -96,13 +225,200 @@ public class Cargo extends Problem implements Callable<Integer> {
                 process_input(file_path);
                 initialize_objects_map(planes, airports, cargoes);
                 initialize_state_index_to_fluent_map();
+                initialize_zobrist_keys();
                 set_initial_state();
                 set_goal_state();
                 initialize_fly_actions();
                 initialize_load_and_unload_actions();
+                initialize_mutex_groups();
+                initialize_sas_encoding();
+                successor_generator = new SuccessorGenerator<>(ground_actions());
                 CargoState.setRandomSeed(seed);
         }
 
+        /**
+         * Derives the static mutex groups from the ground actions ( see
+         * MutexGroups ) and checks the goal against them: a goal with two fluents
+         * of the same group, such as a cargo at two airports, can never be reached.
+         */
+        private void initialize_mutex_groups() {
+                List<CargoAction> actions = Stream.of(CargoAction.CargoActionFactory.getFlyActions(),
+                                CargoAction.CargoActionFactory.getLoadActions(),
+                                CargoAction.CargoActionFactory.getUnloadActions())
+                                .flatMap(List::stream)
+                                .collect(Collectors.toList());
+                mutex_groups = new MutexGroups(actions, state_size, initial_state);
+
+                for (int i = 0; i < goal_fluents.size(); i++) {
+                        for (int j = i + 1; j < goal_fluents.size(); j++) {
+                                if (mutex_groups.are_mutex(goal_fluents.get(i), goal_fluents.get(j))) {
+                                        throw new IllegalArgumentException("\n[ERROR] Unreachable goal: "
+                                                        + getFluentByIndex(goal_fluents.get(i)) + " and "
+                                                        + getFluentByIndex(goal_fluents.get(j)) + " cannot hold together");
+                                }
+                        }
+                }
+        }
+
+        /**
+         * Initializes the finite-domain ( SAS+ ) encoding used by CargoSasState.
+         * Variables 0..planes-1 are the planes, whose value is the airport they are
+         * at; the following ones are the cargoes, whose value is the airport they
+         * are at or, shifted by the number of airports, the plane they are in.
+         * Every fluent is mapped to the assignment it stands for, and the initial
+         * state, the goal and the actions are translated accordingly.
+         */
+        private void initialize_sas_encoding() {
+                sas_variables = planes.length + cargoes.length;
+                fluent_variable = new int[state_size];
+                fluent_value = new int[state_size];
+
+                int cargo_in_offset = planes.length * airports.length;
+                int at_cargo_airport_offset = cargo_in_offset + cargoes.length * planes.length;
+                for (int i = 0; i < state_size; i++) {
+                        if (i < cargo_in_offset) {
+                                fluent_variable[i] = i / airports.length;
+                                fluent_value[i] = i % airports.length;
+                        } else if (i < at_cargo_airport_offset) {
+                                fluent_variable[i] = planes.length + (i - cargo_in_offset) / planes.length;
+                                fluent_value[i] = airports.length + (i - cargo_in_offset) % planes.length;
+                        } else {
+                                fluent_variable[i] = planes.length + (i - at_cargo_airport_offset) / airports.length;
+                                fluent_value[i] = (i - at_cargo_airport_offset) % airports.length;
+                        }
+                }
+
+                initial_sas_state = new long[CargoSasState.words_for(sas_variables)];
+                at.stream().map(value -> predicates_with_index_objects.get(value)).forEach(
+                                fluent -> CargoSasState.set(initial_sas_state, fluent_variable[fluent], fluent_value[fluent]));
+
+                sas_goal_variables = goal_fluents.stream().mapToInt(fluent -> fluent_variable[fluent]).toArray();
+                sas_goal_values = goal_fluents.stream().mapToInt(fluent -> fluent_value[fluent]).toArray();
+
+                Stream.of(CargoAction.CargoActionFactory.getFlyActions(), CargoAction.CargoActionFactory.getLoadActions(),
+                                CargoAction.CargoActionFactory.getUnloadActions())
+                                .flatMap(List::stream)
+                                .forEach(action -> action.build_sas_tables(fluent_variable, fluent_value));
+        }
+
+        /**
+         * Every Cargo heuristic counts goals or planning-graph levels, so priorities
+         * are integers as long as action costs are: in that case the explorers can
+         * use bucket-based frontiers.
+         * 
+         * @return true if all the ground actions have non-negative integer costs.
+         */
+        @Override
+        public boolean hasIntegerCosts() {
+                return Stream.of(CargoAction.CargoActionFactory.getFlyActions(), CargoAction.CargoActionFactory.getLoadActions(),
+                                CargoAction.CargoActionFactory.getUnloadActions())
+                                .flatMap(List::stream)
+                                .allMatch(action -> action.getCost() >= 0 && action.getCost() == Math.rint(action.getCost()));
+        }
+
+        /**
+         * Returns the cache of the current heuristics, one per heuristics and kept
+         * across runs. Only SET_LEVEL, which builds a planning graph per state, is
+         * cached: counting unmet goals is cheaper than a lookup.
+         * 
+         * @return the cache, or null if the heuristics is not cached.
+         */
+        @Override
+        public HeuristicCache heuristicCache() {
+                if (h != Heuristics.SET_LEVEL || heuristic_cache <= 0) {
+                        return null;
+                }
+                synchronized (heuristic_caches) {
+                        return heuristic_caches.computeIfAbsent(h, k -> new HeuristicCache(heuristic_cache * 1024L * 1024L));
+                }
+        }
+
+        /**
+         * Rebuilds a state of the current encoding from its packed words.
+         * 
+         * @param words The words, as returned by State.packedWords.
+         * @return a CargoSasState or a CargoState holding the words.
+         */
+        @Override
+        public State stateFromWords(long[] words) {
+                return encoding == Encodings.SAS ? new CargoSasState(this, words) : new CargoState(this, words);
+        }
+
+        @Override
+        public int nbFluents() {
+                return state_size;
+        }
+
+        /**
+         * Returns the ground actions the states of the current encoding can apply:
+         * all of them for CargoState, those with a finite-domain counterpart for
+         * CargoSasState.
+         * 
+         * @return the fly, load and unload actions.
+         */
+        @Override
+        public Collection<? extends Action> groundActions() {
+                return ground_actions();
+        }
+
+        private List<CargoAction> ground_actions() {
+                return Stream.of(CargoAction.CargoActionFactory.getFlyActions(), CargoAction.CargoActionFactory.getLoadActions(),
+                                CargoAction.CargoActionFactory.getUnloadActions())
+                                .flatMap(List::stream)
+                                .filter(action -> encoding != Encodings.SAS || action.has_sas_encoding())
+                                .collect(Collectors.toList());
+        }
+
+        @Override
+        public int[] goalFluents() {
+                return goal_fluents.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        /**
+         * Checks that the given fluents can hold together: no two of them may
+         * belong to the same static mutex group ( see MutexGroups ), e.g. locate
+         * the same cargo. In the SAS encoding, where every plane is also at
+         * exactly one airport, no two of them may assign the same variable.
+         * 
+         * @param fluents The fluent indices.
+         * @return false if two of the fluents are mutex.
+         */
+        @Override
+        public boolean isConsistent(int[] fluents) {
+                if (encoding != Encodings.SAS) {
+                        return mutex_groups.are_consistent(fluents);
+                }
+                for (int i = 0; i < fluents.length; i++) {
+                        int variable = fluent_variable[fluents[i]];
+                        for (int j = i + 1; j < fluents.length; j++) {
+                                if (fluent_variable[fluents[j]] == variable) {
+                                        return false;
+                                }
+                        }
+                }
+                return true;
+        }
+
+        /**
+         * Returns the index of the fluent standing for the given assignment, i.e.
+         * the inverse of the fluent to variable mapping.
+         * 
+         * @param variable The variable ( plane or cargo ).
+         * @param value    The value of the variable.
+         * @return The index of the fluent.
+         */
+        public int sas_fluent_index(int variable, int value) {
+                if (variable < planes.length) {
+                        return variable * airports.length + value;
+                }
+                int cargo = variable - planes.length;
+                if (value < airports.length) {
+                        return planes.length * airports.length + cargoes.length * planes.length
+                                        + cargo * airports.length + value;
+                }
+                return planes.length * airports.length + cargo * planes.length + value - airports.length;
+        }
+
         /**
          * Sets the goal state by mapping the goal fluents from the input file to their
          * corresponding
@@ -111,6 +427,8 @@ public class Cargo extends Problem implements Callable<Integer> {
         private void set_goal_state() {
                 goal_fluents = goal.stream().map(fluent -> predicates_with_index_objects.get(fluent))
                                 .collect(Collectors.toCollection(ArrayList::new));
+                goal_mask = new long[CargoState.words_for(state_size)];
+                goal_fluents.forEach(fluent -> CargoState.set(goal_mask, fluent));
         }
 
         /**
@@ -130,16 +448,28 @@ public class Cargo extends Problem implements Callable<Integer> {
         }
 
         /**
-         * Sets the initial state by filling the state array with 'T' for true fluents
-         * and 'F'
-         * for false fluents based on the parsed initial state.
+         * Draws one random 64-bit Zobrist key per fluent. The hash of a state is the
+         * XOR of the keys of its true fluents, so it can be updated by XOR-ing the
+         * keys of the fluents an action flips. The keys are drawn from a fixed seed
+         * so hashes are the same from run to run.
+         */
+        private void initialize_zobrist_keys() {
+                SplittableRandom random = new SplittableRandom(0x5DEECE66DL);
+                zobrist_keys = new long[predicates_verbose.size()];
+                for (int i = 0; i < zobrist_keys.length; i++) {
+                        zobrist_keys[i] = random.nextLong();
+                }
+        }
+
+        /**
+         * Sets the initial state by packing one bit per fluent, set for the true
+         * fluents of the parsed initial state and clear for all the others.
          */
         private void set_initial_state() {
 
                 state_size = calculate_state_size(planes.length, airports.length, cargoes.length);
-                this.initial_state = new char[state_size];
-                Arrays.fill(this.initial_state, 'F');
-                at.stream().forEach(value -> this.initial_state[predicates_with_index_objects.get(value)] = 'T');
+                this.initial_state = new long[CargoState.words_for(state_size)];
+                at.stream().forEach(value -> CargoState.set(this.initial_state, predicates_with_index_objects.get(value)));
         }
 
         /**
@@ -286,19 +616,69 @@ public class Cargo extends Problem implements Callable<Integer> {
                                         case "bfs":
                                                 explorer = new BFSExplorer(this);
                                                 break;
+                                        case "pbfs":
+                                                explorer = new ParallelBFSExplorer(this, threads > 0 ? threads
+                                                                : Runtime.getRuntime().availableProcessors());
+                                                break;
+                                        case "ebfs":
+                                                explorer = new ExternalBFSExplorer(this, scratch_dir, partitions);
+                                                break;
                                         case "dfs":
                                                 explorer = new DFSExplorer(this);
                                                 break;
                                         case "mincost":
-                                                explorer = new MinCostExplorer(this);
+                                                if (node_store == NodeStores.COMPACT) {
+                                                        explorer = new CompactAstarExplorer(this);
+                                                        this.clearHeuristics();
+                                                } else {
+                                                        explorer = new MinCostExplorer(this);
+                                                }
                                                 break;
                                         case "a*":
-                                                explorer = new AstarExplorer(this);
+                                                explorer = node_store == NodeStores.COMPACT ? new CompactAstarExplorer(this)
+                                                                : new AstarExplorer(this);
+                                                this.clearHeuristics();
+                                                if (algoAndSetting.size() > 1) {
+                                                        this.setHeuristics(Cargo.Heuristics.valueOf(setting));
+                                                }
+                                                break;
+                                        case "hda*":
+                                                explorer = new HDAstarExplorer(this, threads > 0 ? threads
+                                                                : Runtime.getRuntime().availableProcessors());
+                                                this.clearHeuristics();
+                                                if (algoAndSetting.size() > 1) {
+                                                        this.setHeuristics(Cargo.Heuristics.valueOf(setting));
+                                                }
+                                                break;
+                                        case "ida*":
+                                                IDAstarExplorer ida = new IDAstarExplorer(this);
+                                                ida.setTranspositionTableSize(transposition_table);
+                                                explorer = ida;
+                                                this.clearHeuristics();
+                                                if (algoAndSetting.size() > 1) {
+                                                        this.setHeuristics(Cargo.Heuristics.valueOf(setting));
+                                                }
+                                                break;
+                                        case "ara*":
+                                                ARAstarExplorer ara = new ARAstarExplorer(this);
+                                                ara.setInitialWeight(weight);
+                                                ara.setWeightStep(weight_step);
+                                                ara.setTimeBudgetMsec(time_budget);
+                                                if (output_stats < 1) {
+                                                        ara.setSolutionListener((plan, cost, bound) -> System.out.println(
+                                                                        "[INFO]  Plan of " + plan.size() + " actions ( cost " + cost
+                                                                                        + " ) found after " + ara.getDurationMsec() / 1000.0
+                                                                                        + " sec, at most " + bound + " times the optimal one"));
+                                                }
+                                                explorer = ara;
                                                 this.clearHeuristics();
                                                 if (algoAndSetting.size() > 1) {
                                                         this.setHeuristics(Cargo.Heuristics.valueOf(setting));
                                                 }
                                                 break;
+                                        case "bidir":
+                                                explorer = new BidirectionalExplorer(this);
+                                                break;
                                         case "bfg":
                                                 explorer = new BestFirstGreedyExplorer(this);
                                                 this.clearHeuristics();
@@ -312,8 +692,14 @@ public class Cargo extends Problem implements Callable<Integer> {
                                 }
 
                                 explorer.setVerbosity(SearchStateExplorer.VERBOSITY.values()[vlevel]);
+                                explorer.setDeferredHeuristic(deferred_heuristic);
+                                if (closed_list == ClosedLists.OPEN_ADDRESSING) {
+                                        explorer.setClosedList(new OpenAddressingClosedList());
+                                }
 
-                                CargoState initialState = new CargoState(this, initial_state);
+                                State initialState = encoding == Encodings.SAS
+                                                ? new CargoSasState(this, initial_sas_state)
+                                                : new CargoState(this, initial_state);
 
                                 if (output_stats < 1) {
                                         System.out.println("[INFO]  Initial state: " + initialState);
@@ -502,8 +888,8 @@ public class Cargo extends Problem implements Callable<Integer> {
 
         public ArrayList<String> get_initial_state_fluents() {
                 ArrayList<String> fluents = new ArrayList<>();
-                for (int i = 0; i < initial_state.length; i++) {
-                        if (initial_state[i] == 'T') {
+                for (int i = 0; i < state_size; i++) {
+                        if (CargoState.is_set(initial_state, i)) {
                                 fluents.add(getFluentByIndex(i));
                         } else {
                                 fluents.add("!" + getFluentByIndex(i));
@@ -521,6 +907,151 @@ public class Cargo extends Problem implements Callable<Integer> {
                 return goal_fluents;
         }
 
+        /**
+         * Returns the goal fluents packed as a bit mask over the state words.
+         * 
+         * @return the goal mask.
+         */
+        public long[] getGoal_mask() {
+                return goal_mask;
+        }
+
+        public int getSas_variables() {
+                return sas_variables;
+        }
+
+        public int[] getFluent_variable() {
+                return fluent_variable;
+        }
+
+        public int[] getFluent_value() {
+                return fluent_value;
+        }
+
+        public long[] getInitial_sas_state() {
+                return initial_sas_state;
+        }
+
+        public int[] getSas_goal_variables() {
+                return sas_goal_variables;
+        }
+
+        public int[] getSas_goal_values() {
+                return sas_goal_values;
+        }
+
+        public int getThreads() {
+                return threads;
+        }
+
+        public void setThreads(int threads) {
+                this.threads = threads;
+        }
+
+        public int getTransposition_table() {
+                return transposition_table;
+        }
+
+        public void setTransposition_table(int transposition_table) {
+                this.transposition_table = transposition_table;
+        }
+
+        public double getWeight() {
+                return weight;
+        }
+
+        public void setWeight(double weight) {
+                this.weight = weight;
+        }
+
+        public double getWeight_step() {
+                return weight_step;
+        }
+
+        public void setWeight_step(double weight_step) {
+                this.weight_step = weight_step;
+        }
+
+        public long getTime_budget() {
+                return time_budget;
+        }
+
+        public void setTime_budget(long time_budget) {
+                this.time_budget = time_budget;
+        }
+
+        public File getScratch_dir() {
+                return scratch_dir;
+        }
+
+        public void setScratch_dir(File scratch_dir) {
+                this.scratch_dir = scratch_dir;
+        }
+
+        public int getPartitions() {
+                return partitions;
+        }
+
+        public void setPartitions(int partitions) {
+                this.partitions = partitions;
+        }
+
+        public int getHeuristic_cache() {
+                return heuristic_cache;
+        }
+
+        public void setHeuristic_cache(int heuristic_cache) {
+                this.heuristic_cache = heuristic_cache;
+        }
+
+        public boolean isDeferred_heuristic() {
+                return deferred_heuristic;
+        }
+
+        public void setDeferred_heuristic(boolean deferred_heuristic) {
+                this.deferred_heuristic = deferred_heuristic;
+        }
+
+        public PlanningGraphs getPlanning_graph() {
+                return planning_graph;
+        }
+
+        public void setPlanning_graph(PlanningGraphs planning_graph) {
+                this.planning_graph = planning_graph;
+        }
+
+        public MutexGroups getMutex_groups() {
+                return mutex_groups;
+        }
+
+        public NodeStores getNode_store() {
+                return node_store;
+        }
+
+        public void setNode_store(NodeStores node_store) {
+                this.node_store = node_store;
+        }
+
+        public ClosedLists getClosed_list() {
+                return closed_list;
+        }
+
+        public void setClosed_list(ClosedLists closed_list) {
+                this.closed_list = closed_list;
+        }
+
+        public Encodings getEncoding() {
+                return encoding;
+        }
+
+        public void setEncoding(Encodings encoding) {
+                this.encoding = encoding;
+        }
+
+        public long[] getZobrist_keys() {
+                return zobrist_keys;
+        }
+
         public ArrayList<String> get_goal_fluents_as_strings() {
                 ArrayList<String> fluents = new ArrayList<>();
                 for (Integer i : getGoal_fluents()) {
@@ -605,11 +1136,11 @@ public class Cargo extends Problem implements Callable<Integer> {
                 this.state_size = state_size;
         }
 
-        public char[] getInitial_state() {
+        public long[] getInitial_state() {
                 return initial_state;
         }
 
-        public void setInitial_state(char[] initial_state) {
+        public void setInitial_state(long[] initial_state) {
                 this.initial_state = initial_state;
         }
 
@@ -629,6 +1160,16 @@ public class Cargo extends Problem implements Callable<Integer> {
                 this.predicates_with_index_objects = predicates_with_index_objects;
         }
 
+        /**
+         * Returns the index of the ground actions by precondition, built once per
+         * problem over the actions of the current encoding.
+         * 
+         * @return the successor generator.
+         */
+        public SuccessorGenerator<CargoAction> getSuccessor_generator() {
+                return successor_generator;
+        }
+
         public CargoPlanningGraph getCpg() {
                 return cpg;
         }
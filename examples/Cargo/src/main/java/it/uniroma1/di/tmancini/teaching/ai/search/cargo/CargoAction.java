@@ -29,6 +29,67 @@ public abstract class CargoAction extends Action {
 	protected ArrayList<Integer> negative_effects = new ArrayList<Integer>();
 	protected ArrayList<Integer> positive_effects = new ArrayList<Integer>();
 
+	/**
+	 * The same preconditions and effects packed as bit masks over the words of a
+	 * CargoState ( bit i % 64 of word i / 64 stands for fluent i ), so that
+	 * precondition tests and effect application work a word at a time. The masks
+	 * are only as long as needed to cover the highest fluent index they mention.
+	 */
+	protected long[] precondition_mask;
+	protected long[] negative_effects_mask;
+	protected long[] positive_effects_mask;
+
+	/**
+	 * The same preconditions and effects as primitive arrays of fluent indices,
+	 * for the code that walks them on every expansion without unboxing.
+	 */
+	protected int[] precondition_fluents;
+	protected int[] negative_effect_fluents;
+	protected int[] positive_effect_fluents;
+
+	/**
+	 * Packs the index-based preconditions and effects into their bit masks and
+	 * int tables. Called by the concrete actions once their lists are filled.
+	 */
+	protected void build_masks() {
+		this.precondition_mask = CargoState.to_mask(preconditions);
+		this.negative_effects_mask = CargoState.to_mask(negative_effects);
+		this.positive_effects_mask = CargoState.to_mask(positive_effects);
+		this.precondition_fluents = preconditions.stream().mapToInt(Integer::intValue).toArray();
+		this.negative_effect_fluents = negative_effects.stream().mapToInt(Integer::intValue).toArray();
+		this.positive_effect_fluents = positive_effects.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Checks whether all the preconditions hold in the given packed state.
+	 *
+	 * @param words the packed state.
+	 * @return true if every precondition bit is set in the state.
+	 */
+	public boolean is_applicable(long[] words) {
+		for (int i = 0; i < precondition_mask.length; i++) {
+			if ((words[i] & precondition_mask[i]) != precondition_mask[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Applies the negative and then the positive effects, in place, to the given
+	 * packed state.
+	 *
+	 * @param words the packed state to modify.
+	 */
+	public void apply_effects(long[] words) {
+		for (int i = 0; i < negative_effects_mask.length; i++) {
+			words[i] &= ~negative_effects_mask[i];
+		}
+		for (int i = 0; i < positive_effects_mask.length; i++) {
+			words[i] |= positive_effects_mask[i];
+		}
+	}
+
 	@Override
 	public ArrayList<Integer> getPreconditions() {
 		return preconditions;
@@ -44,6 +105,18 @@ public abstract class CargoAction extends Action {
 		return positive_effects;
 	}
 
+	public int[] getPrecondition_fluents() {
+		return precondition_fluents;
+	}
+
+	public int[] getNegative_effect_fluents() {
+		return negative_effect_fluents;
+	}
+
+	public int[] getPositive_effect_fluents() {
+		return positive_effect_fluents;
+	}
+
 	/**
 	 * Converts the index-based preconditions into a list of strings ( 1, 2, 3 ) ->
 	 * ( AT(CARGO_1, JFK); IN(CARGO_1, PLANE) ) .
@@ -78,6 +151,60 @@ public abstract class CargoAction extends Action {
 				.collect(Collectors.toCollection(ArrayList::new));
 	}
 
+	/**
+	 * The finite-domain ( SAS+ ) view of the action, used by CargoSasState: the
+	 * preconditions and the effects are assignments variable = value, where
+	 * every plane and every cargo is a single variable ( see
+	 * Cargo.initialize_sas_encoding ). The tables are null for actions that
+	 * cannot be expressed this way.
+	 */
+	protected int[] sas_precondition_variables;
+	protected int[] sas_precondition_values;
+	protected int[] sas_effect_variables;
+	protected int[] sas_effect_values;
+
+	/**
+	 * Translates the index-based preconditions and effects into variable
+	 * assignments. Positive effects become the assignments, negative effects are
+	 * implied by them; an action with a negative effect on a variable it does
+	 * not reassign has no finite-domain counterpart and is left without tables.
+	 *
+	 * @param fluent_variable the variable of every fluent.
+	 * @param fluent_value    the value of that variable the fluent stands for.
+	 */
+	public void build_sas_tables(int[] fluent_variable, int[] fluent_value) {
+		int[] effect_variables = positive_effects.stream().mapToInt(f -> fluent_variable[f]).toArray();
+		for (int negative_effect : negative_effects) {
+			if (Arrays.stream(effect_variables).noneMatch(v -> v == fluent_variable[negative_effect])) {
+				return;
+			}
+		}
+		this.sas_precondition_variables = preconditions.stream().mapToInt(f -> fluent_variable[f]).toArray();
+		this.sas_precondition_values = preconditions.stream().mapToInt(f -> fluent_value[f]).toArray();
+		this.sas_effect_variables = effect_variables;
+		this.sas_effect_values = positive_effects.stream().mapToInt(f -> fluent_value[f]).toArray();
+	}
+
+	public boolean has_sas_encoding() {
+		return sas_precondition_variables != null;
+	}
+
+	public int[] getSas_precondition_variables() {
+		return sas_precondition_variables;
+	}
+
+	public int[] getSas_precondition_values() {
+		return sas_precondition_values;
+	}
+
+	public int[] getSas_effect_variables() {
+		return sas_effect_variables;
+	}
+
+	public int[] getSas_effect_values() {
+		return sas_effect_values;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		return o instanceof CargoAction && this.hashCode() == o.hashCode();
@@ -103,6 +230,7 @@ public abstract class CargoAction extends Action {
 			this.preconditions.add(at_plane_airport_1);
 			this.negative_effects.add(at_plane_airport_1);
 			this.positive_effects.add(at_plane_airport_2);
+			build_masks();
 
 			// Get the name of plane and airport for printing
 			this.plane = Cargo.getObjectsFromProposition(Cargo.getFluentByIndex(at_plane_airport_1)).get(0);
@@ -135,6 +263,7 @@ public abstract class CargoAction extends Action {
 			negative_effects.add(at_cargo_airport);
 
 			positive_effects.add(in_plane_cargo);
+			build_masks();
 
 			// Get name of objects for toString()
 			this.plane = Cargo.getObjectsFromProposition(Cargo.getFluentByIndex(in_plane_cargo)).get(1);
@@ -168,6 +297,7 @@ public abstract class CargoAction extends Action {
 
 			negative_effects.add(in_plane_cargo);
 			positive_effects.add(at_cargo_airport);
+			build_masks();
 
 			// Get name of objects for toString()
 			this.plane = Cargo.getObjectsFromProposition(Cargo.getFluentByIndex(in_plane_cargo)).get(1);
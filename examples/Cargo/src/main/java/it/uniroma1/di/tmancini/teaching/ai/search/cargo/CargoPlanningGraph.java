@@ -1,7 +1,6 @@
 package it.uniroma1.di.tmancini.teaching.ai.search.cargo;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Main class for running the Cargo problem with graph-based planning.
@@ -10,9 +9,8 @@ import java.util.stream.Collectors;
 public class CargoPlanningGraph {
 
         private Cargo problem;
-        private static ArrayList<String> all_propositions = new ArrayList<>();
-        private Set<Planning_Action> actions = new HashSet<>();
-        private Set<Proposition> goal = new HashSet<>();
+        private BitPlanningGraph graph;
+        private int[] goal;
 
         public CargoPlanningGraph(Cargo c) {
                 this.problem = c;
@@ -20,116 +18,67 @@ public class CargoPlanningGraph {
         }
 
         /**
-         * Initializes the cargo problem, builds the planning graph, and calculates the
-         * h-level.
-         * 
-         * @return 1 if the execution completes successfully.
+         * Numbers the propositions and the actions of the cargo problem and builds
+         * the static part of the planning graph ( see BitPlanningGraph ), with the
+         * mutex groups derived once by the problem.
          */
         public void intilize_cargo_planning_graph() {
-                all_propositions = problem.get_predicates_verbose();
-                this.actions = create_graph_planning_actions();
-                this.goal = get_goal_state_propositions();
-        }
+                List<CargoAction> cargo_actions = new ArrayList<>();
+                cargo_actions.addAll(CargoAction.CargoActionFactory.getFlyActions());
+                cargo_actions.addAll(CargoAction.CargoActionFactory.getLoadActions());
+                cargo_actions.addAll(CargoAction.CargoActionFactory.getUnloadActions());
 
-        public int calculate_set_level(char[] state_) {
-                Set<Proposition> state = create_proposition_map_from_state(state_);
-                PlanningGraph planningGraph = new PlanningGraph(state, actions, 50);
-                int set_level = planningGraph.calculate_set_level(goal);
-                return set_level;
+                int[][] preconditions = new int[cargo_actions.size()][];
+                int[][] effects = new int[cargo_actions.size()][];
+                for (int i = 0; i < cargo_actions.size(); i++) {
+                        CargoAction action = cargo_actions.get(i);
+                        preconditions[i] = create_graph_planning_propositions(action.getPrecondition_fluents(), new int[0]);
+                        effects[i] = create_graph_planning_propositions(action.getPositive_effect_fluents(),
+                                        action.getNegative_effect_fluents());
+                }
 
+                this.graph = new BitPlanningGraph(problem.getState_size(), preconditions, effects,
+                                problem.getMutex_groups().getGroups(), 50,
+                                problem.getPlanning_graph() != Cargo.PlanningGraphs.FULL);
+                this.goal = get_goal_state_propositions();
         }
 
         /**
-         * @param state char array representation of the cargo state
-         * 
-         * @return the goal state as a set of Proposition objects.
+         * Calculates the set level of the goals from the given state.
+         *
+         * @param state_ bit-packed representation of the cargo state
+         * @return the set level, or Integer.MAX_VALUE if the goals are unreachable.
          */
-        private Set<Proposition> create_proposition_map_from_state(char[] state) {
-
-                ArrayList<String> fluents = new ArrayList<>();
-
-                for (int i = 0; i < state.length; i++) {
-                        if (state[i] == 'T') {
-                                fluents.add(Cargo.getFluentByIndex(i));
-                        } else {
-                                fluents.add("!" + Cargo.getFluentByIndex(i));
-                        }
-                }
-                return fluents.stream().map(Proposition::new).collect(Collectors.toSet());
+        public int calculate_set_level(long[] state_) {
+                return graph.calculate_set_level(state_, goal);
         }
 
         /**
-         * Retrieves the goal state as a set of propositions from the cargo problem.
-         * 
-         * @return the goal state as a set of Proposition objects.
+         * Retrieves the goal state as propositions of the planning graph.
+         *
+         * @return the goal propositions.
          */
-        private Set<Proposition> get_goal_state_propositions() {
-                ArrayList<String> props_string = this.problem.get_goal_fluents_as_strings();
-                return props_string.stream().map(Proposition::new).collect(Collectors.toSet());
+        private int[] get_goal_state_propositions() {
+                return problem.getGoal_fluents().stream().mapToInt(BitPlanningGraph::positive).toArray();
         }
 
         /**
-         * Creates a set of actions for the graph planning process from the cargo
-         * actions.
-         * 
-         * @return a set of Planning_Action objects for the planning graph.
+         * Turns fluents that become true and fluents that become false into
+         * propositions of the planning graph.
+         *
+         * @param positive the fluents that are true.
+         * @param negative the fluents that are false.
+         * @return the propositions.
          */
-        private Set<Planning_Action> create_graph_planning_actions() {
-                Set<Planning_Action> actions = new HashSet<>();
-
-                ArrayList<CargoAction> cargo_actions = new ArrayList<>();
-                cargo_actions.addAll(CargoAction.CargoActionFactory.getFlyActions());
-                cargo_actions.addAll(CargoAction.CargoActionFactory.getLoadActions());
-                cargo_actions.addAll(CargoAction.CargoActionFactory.getUnloadActions());
-
-                for (CargoAction cargoAction : cargo_actions) {
-                        Set<Proposition> preconditions = cargoAction.getStringPreconditions().stream()
-                                        .map(Proposition::new)
-                                        .collect(Collectors.toSet());
-
-                        Set<Proposition> effects = cargoAction.getStringPositiveEffects().stream()
-                                        .map(Proposition::new)
-                                        .collect(Collectors.toSet());
-                        effects.addAll(cargoAction.getStringNegativeEffects().stream()
-                                        .map(Proposition::new)
-                                        .collect(Collectors.toSet()));
-
-                        actions.add(new Planning_Action(cargoAction.toString(), preconditions, effects));
+        private static int[] create_graph_planning_propositions(int[] positive, int[] negative) {
+                int[] propositions = new int[positive.length + negative.length];
+                for (int i = 0; i < positive.length; i++) {
+                        propositions[i] = BitPlanningGraph.positive(positive[i]);
                 }
-
-                actions.addAll(create_persistent_actions());
-                return actions;
-        }
-
-        /**
-         * Creates a set of persistent actions that maintain state in the planning
-         * graph.
-         * 
-         * @return a set of persistent Action objects.
-         */
-        private Set<Planning_Action> create_persistent_actions() {
-                Set<Planning_Action> actions = new HashSet<>();
-
-                for (String prop : all_propositions) {
-                        ArrayList<Proposition> preconditions = new ArrayList<>();
-                        ArrayList<Proposition> effects = new ArrayList<>();
-
-                        preconditions.add(new Proposition(prop));
-                        preconditions.add(new Proposition("!" + prop));
-                        effects.add(new Proposition(prop));
-                        effects.add(new Proposition("!" + prop));
-
-                        for (int i = 0; i < preconditions.size(); i++) {
-                                Set<Proposition> prec = new HashSet<>();
-                                prec.add(preconditions.get(i));
-                                Set<Proposition> eff = new HashSet<>();
-                                eff.add(effects.get(i));
-
-                                actions.add(new Planning_Action((i % 2 == 0 ? "" : "!") + prop + "_persistent", prec,
-                                                eff));
-                        }
+                for (int i = 0; i < negative.length; i++) {
+                        propositions[positive.length + i] = BitPlanningGraph.negative(negative[i]);
                 }
-                return actions;
+                return propositions;
         }
 
 }
@@ -0,0 +1,322 @@
+package it.uniroma1.di.tmancini.teaching.ai.search.cargo;
+
+import java.util.*;
+import it.uniroma1.di.tmancini.teaching.ai.search.*;
+
+/**
+ * Finite-domain ( SAS+ ) alternative to CargoState. Instead of one boolean per
+ * fluent, every plane and every cargo is a single variable:
+ * <ul>
+ * <li>a plane's value is the index of the airport it is at;</li>
+ * <li>a cargo's value is the index of the airport it is at, or the number of
+ * airports plus the index of the plane it is in.</li>
+ * </ul>
+ * Every variable takes one byte and the bytes are packed eight per long word,
+ * so a state of the seventh instance ( 5 planes, 12 cargoes ) is 17 bytes of
+ * payload in 3 words.
+ */
+public class CargoSasState extends State {
+
+	private long[] state;
+	private Cargo cargo;
+	private int h_value = -1; // computed by hValue on first call
+
+	/**
+	 * The applicable actions, maintained from parent to child as in CargoState,
+	 * and kept by every expanded state at the same memory cost.
+	 */
+	private long[] applicable;
+	private long[] parent_applicable;
+	private long[] parent_state;
+
+	/**
+	 * Constructs a new CargoSasState with the given Cargo Problem and packed
+	 * variables.
+	 *
+	 * @param c     the Cargo instance.
+	 * @param state the words holding the value of every variable.
+	 */
+	public CargoSasState(Cargo c, long[] state) {
+		this(c, state, null, null);
+	}
+
+	/**
+	 * Constructs a new CargoSasState derived from a parent state.
+	 *
+	 * @param c                 the Cargo instance.
+	 * @param state             the words holding the value of every variable.
+	 * @param parent_applicable the applicable actions of the parent, or null.
+	 * @param parent_state      the words of the parent.
+	 */
+	private CargoSasState(Cargo c, long[] state, long[] parent_applicable, long[] parent_state) {
+		super(c);
+		this.cargo = c;
+		this.state = state;
+		this.parent_applicable = parent_applicable;
+		this.parent_state = parent_state;
+	}
+
+	/**
+	 * Returns the number of words needed to pack the given number of variables.
+	 *
+	 * @param variables the number of variables.
+	 * @return the number of long words.
+	 */
+	public static int words_for(int variables) {
+		return (variables + 7) >>> 3;
+	}
+
+	/**
+	 * Reads the value of a variable from a packed state.
+	 *
+	 * @param words    the packed state.
+	 * @param variable the index of the variable.
+	 * @return the value of the variable.
+	 */
+	public static int get(long[] words, int variable) {
+		return (int) (words[variable >>> 3] >>> ((variable & 7) << 3)) & 0xFF;
+	}
+
+	/**
+	 * Writes the value of a variable into a packed state.
+	 *
+	 * @param words    the packed state.
+	 * @param variable the index of the variable.
+	 * @param value    the new value, in [0, 255].
+	 */
+	public static void set(long[] words, int variable, int value) {
+		int shift = (variable & 7) << 3;
+		words[variable >>> 3] = (words[variable >>> 3] & ~(0xFFL << shift)) | ((long) value << shift);
+	}
+
+	/**
+	 * Calculates the number of goal assignments not met in the current state.
+	 *
+	 * @return the number of unmet goals.
+	 */
+	private int calculate_unmet_goals() {
+		int[] goal_variables = cargo.getSas_goal_variables();
+		int[] goal_values = cargo.getSas_goal_values();
+		int unmet_goals = 0;
+		for (int i = 0; i < goal_variables.length; i++) {
+			if (get(state, goal_variables[i]) != goal_values[i]) {
+				unmet_goals++;
+			}
+		}
+		return unmet_goals;
+	}
+
+	/**
+	 * Translates the state back into the boolean encoding of CargoState.
+	 *
+	 * @return the bit-packed fluents that hold in this state.
+	 */
+	public long[] to_fluent_words() {
+		long[] words = new long[CargoState.words_for(cargo.getState_size())];
+		for (int variable = 0; variable < cargo.getSas_variables(); variable++) {
+			CargoState.set(words, cargo.sas_fluent_index(variable, get(state, variable)));
+		}
+		return words;
+	}
+
+	/**
+	 * Returns a collection of executable actions from the current state.
+	 *
+	 * @return a collection of valid CargoActions.
+	 */
+	public Collection<? extends Action> executableActions() {
+		List<CargoAction> result = new ArrayList<>();
+		successorActions().forEachRemaining(result::add);
+		return result;
+	}
+
+	/**
+	 * Returns the executable actions one at a time, in the order of
+	 * CargoState.successorActions; the successor generator tests the fluents
+	 * through holds.
+	 *
+	 * @return an iterator over the valid CargoActions.
+	 */
+	@Override
+	public Iterator<CargoAction> successorActions() {
+		return CargoState.seeded_order(cargo.getSuccessor_generator().iterator(applicable_actions()));
+	}
+
+	/**
+	 * Returns the bitset of the applicable actions, deriving it from the
+	 * parent's when it is known and from scratch otherwise.
+	 *
+	 * @return the applicable actions of the state.
+	 */
+	private long[] applicable_actions() {
+		if (applicable == null) {
+			SuccessorGenerator<CargoAction> generator = cargo.getSuccessor_generator();
+			if (parent_applicable == null) {
+				applicable = generator.applicable(this);
+			} else {
+				applicable = parent_applicable.clone();
+				for (int variable = 0; variable < cargo.getSas_variables(); variable++) {
+					int old_value = get(parent_state, variable);
+					int value = get(state, variable);
+					if (old_value != value) {
+						generator.retest(applicable, this, cargo.sas_fluent_index(variable, old_value));
+						generator.retest(applicable, this, cargo.sas_fluent_index(variable, value));
+					}
+				}
+			}
+			parent_applicable = null;
+			parent_state = null;
+		}
+		return applicable;
+	}
+
+	/**
+	 * Returns the resulting state after applying the given action.
+	 *
+	 * @param a the action to apply.
+	 * @return the new CargoSasState after applying the action.
+	 */
+	public State resultingState(Action a) {
+		CargoAction action = (CargoAction) a;
+		long[] new_state = Arrays.copyOf(this.state, this.state.length);
+		int[] variables = action.getSas_effect_variables();
+		int[] values = action.getSas_effect_values();
+		for (int i = 0; i < variables.length; i++) {
+			set(new_state, variables[i], values[i]);
+		}
+		return new CargoSasState(cargo, new_state, this.applicable, this.state);
+	}
+
+	/**
+	 * Writes the words of the state the action leads to, without building it.
+	 *
+	 * @param a    the action to apply.
+	 * @param into the array receiving the words.
+	 */
+	@Override
+	public void resultingWords(Action a, long[] into) {
+		CargoAction action = (CargoAction) a;
+		System.arraycopy(this.state, 0, into, 0, this.state.length);
+		int[] variables = action.getSas_effect_variables();
+		int[] values = action.getSas_effect_values();
+		for (int i = 0; i < variables.length; i++) {
+			set(into, variables[i], values[i]);
+		}
+	}
+
+	/**
+	 * Checks whether the fluent holds, i.e. whether its variable has the value it
+	 * stands for.
+	 *
+	 * @param fluent the index of the fluent.
+	 * @return true if the fluent is true.
+	 */
+	@Override
+	public boolean holds(int fluent) {
+		return get(state, cargo.getFluent_variable()[fluent]) == cargo.getFluent_value()[fluent];
+	}
+
+	/**
+	 * Checks if the current state meets the goal assignments.
+	 *
+	 * @return true if all goal conditions are met, false otherwise.
+	 */
+	public boolean isGoal() {
+		int[] goal_variables = cargo.getSas_goal_variables();
+		int[] goal_values = cargo.getSas_goal_values();
+		for (int i = 0; i < goal_variables.length; i++) {
+			if (get(state, goal_variables[i]) != goal_values[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the heuristic value for the current state. It is computed on the
+	 * first call, so that states discarded as duplicates never pay for it (a
+	 * planning graph for SET_LEVEL), and kept for the following ones.
+	 *
+	 * @return the heuristic value based on unmet goals or other heuristics.
+	 */
+	public double hValue() {
+		Cargo.Heuristics h = cargo.getHeuristics();
+		if (h == null) {
+			return 0;
+		}
+		if (h_value < 0) {
+			switch (h) {
+				case UNMET_GOALS:
+					h_value = calculate_unmet_goals();
+					break;
+				case SET_LEVEL:
+					h_value = cargo.getCpg().calculate_set_level(to_fluent_words());
+					break;
+				default:
+					throw new RuntimeException("Heuristics " + h + " unknown");
+			}
+		}
+		return h_value;
+	}
+
+	public boolean equals(Object o) {
+		if (o == null || !o.getClass().equals(this.getClass())) {
+			return false;
+		}
+		CargoSasState oo = (CargoSasState) o;
+		return Arrays.equals(state, oo.state);
+	}
+
+	@Override
+	public int hashCode() {
+		long h = fingerprint();
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * Returns a 64-bit hash of the packed words.
+	 *
+	 * @return the fingerprint of the state.
+	 */
+	@Override
+	public long fingerprint() {
+		long h = 0;
+		for (long word : state) {
+			h = (h ^ word) * 0x9E3779B97F4A7C15L;
+		}
+		return h ^ (h >>> 29);
+	}
+
+	/**
+	 * Returns the packed words themselves: two states are equal iff their words
+	 * are.
+	 *
+	 * @return the packed state.
+	 */
+	@Override
+	public long[] packedWords() {
+		return state;
+	}
+
+	@Override
+	public Object clone() {
+		return super.clone();
+	}
+
+	/**
+	 * Returns a string representation of the current state.
+	 *
+	 * @return a string listing the fluent every variable stands for.
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder("\n");
+		for (int variable = 0; variable < cargo.getSas_variables(); variable++) {
+			sb.append(Cargo.getFluentByIndex(cargo.sas_fluent_index(variable, get(state, variable))) + " ");
+		}
+		return sb.toString();
+	}
+
+	public long[] getState() {
+		return state;
+	}
+}
@@ -1,16 +1,35 @@
 package it.uniroma1.di.tmancini.teaching.ai.search.cargo;
 
 import java.util.*;
-import java.util.stream.Collectors;
 import it.uniroma1.di.tmancini.teaching.ai.search.*;
-import it.uniroma1.di.tmancini.teaching.ai.search.cargo.Cargo.Heuristics;
 
 public class CargoState extends State {
 
-	private char[] state;
+	/**
+	 * The state is bit-packed: fluent i is true iff bit ( i % 64 ) of word
+	 * ( i / 64 ) is set.
+	 */
+	private long[] state;
 	private Cargo cargo;
-	private int unmet_goals;
-	private int set_level;
+	private long zobrist;
+	private int h_value = -1; // computed by hValue on first call
+
+	/**
+	 * The actions applicable in the state, as a bitset over the ground actions
+	 * ( see SuccessorGenerator ), computed when the state is first expanded.
+	 * Until then a child only keeps the bitset and the words of its parent:
+	 * its own bitset is derived by testing again the actions whose
+	 * preconditions mention one of the fluents that differ between the two.
+	 *
+	 * This costs memory: an expanded state keeps its bitset, one bit per
+	 * ground action, for as long as the state is reachable, e.g. through the
+	 * parent links of the search nodes, which covers most of the search tree.
+	 * On the seventh instance that is 19 words per expanded state, against
+	 * the 4 words of its fluents.
+	 */
+	private long[] applicable;
+	private long[] parent_applicable;
+	private long[] parent_state;
 
 	private static Random RANDOM = new Random();
 	private static boolean use_seed = true;
@@ -24,23 +43,100 @@ public class CargoState extends State {
 	}
 
 	/**
-	 * Constructs a new CargoState with the given Cargo Problem and state array.
+	 * Constructs a new CargoState with the given Cargo Problem and packed state.
 	 *
 	 * @param c     the Cargo instance.
-	 * @param state the array representing the current state.
+	 * @param state the words representing the current state.
+	 */
+	public CargoState(Cargo c, long[] state) {
+		this(c, state, calculate_zobrist(c, state), null, null);
+	}
+
+	/**
+	 * Constructs a new CargoState whose Zobrist hash is already known.
+	 *
+	 * @param c                 the Cargo instance.
+	 * @param state             the words representing the current state.
+	 * @param zobrist           the Zobrist hash of the state.
+	 * @param parent_applicable the applicable actions of the parent, or null.
+	 * @param parent_state      the words of the parent.
 	 */
-	public CargoState(Cargo c, char[] state) {
+	private CargoState(Cargo c, long[] state, long zobrist, long[] parent_applicable, long[] parent_state) {
 		super(c);
 		this.cargo = c;
 		this.state = state;
+		this.zobrist = zobrist;
+		this.parent_applicable = parent_applicable;
+		this.parent_state = parent_state;
+	}
+
+	/**
+	 * Returns the number of words needed to pack the given number of fluents.
+	 *
+	 * @param fluents the number of fluents.
+	 * @return the number of long words.
+	 */
+	public static int words_for(int fluents) {
+		return (fluents + 63) >>> 6;
+	}
 
-		if (c.getHeuristics() == Heuristics.UNMET_GOALS) {
-			this.unmet_goals = calculate_unmet_goals();
+	/**
+	 * Checks whether the given fluent is set in a packed state.
+	 *
+	 * @param words  the packed state.
+	 * @param fluent the index of the fluent.
+	 * @return true if the fluent is true.
+	 */
+	public static boolean is_set(long[] words, int fluent) {
+		return (words[fluent >>> 6] & (1L << fluent)) != 0;
+	}
+
+	/**
+	 * Sets the given fluent to true in a packed state.
+	 *
+	 * @param words  the packed state.
+	 * @param fluent the index of the fluent.
+	 */
+	public static void set(long[] words, int fluent) {
+		words[fluent >>> 6] |= 1L << fluent;
+	}
+
+	/**
+	 * Packs a list of fluent indices into a mask just long enough to hold the
+	 * highest of them.
+	 *
+	 * @param fluents the indices of the fluents.
+	 * @return the mask.
+	 */
+	public static long[] to_mask(List<Integer> fluents) {
+		int max = -1;
+		for (int fluent : fluents) {
+			max = Math.max(max, fluent);
 		}
-		if (c.getHeuristics() == Heuristics.SET_LEVEL) {
-			this.set_level = calculate_set_level();
+		long[] mask = new long[words_for(max + 1)];
+		for (int fluent : fluents) {
+			set(mask, fluent);
 		}
+		return mask;
+	}
 
+	/**
+	 * Calculates from scratch the Zobrist hash of a packed state, i.e. the XOR of
+	 * the keys of all its true fluents.
+	 *
+	 * @param c     the Cargo instance holding the keys.
+	 * @param state the packed state.
+	 * @return the Zobrist hash.
+	 */
+	private static long calculate_zobrist(Cargo c, long[] state) {
+		long[] keys = c.getZobrist_keys();
+		long zobrist = 0;
+		for (int i = 0; i < state.length; i++) {
+			for (long word = state[i]; word != 0; word &= word - 1) {
+				zobrist ^= keys[(i << 6) + Long.numberOfTrailingZeros(word)];
+			}
+		}
+		return zobrist;
 	}
 
 	private int calculate_set_level() {
@@ -50,14 +146,18 @@ public class CargoState extends State {
 	}
 
 	/**
-	 * Calculates the number of unmet goals in the current state.
+	 * Calculates the number of unmet goals in the current state, i.e. the goal
+	 * bits that are not set in the state.
 	 *
 	 * @return the number of unmet goals.
 	 */
 	private int calculate_unmet_goals() {
-		ArrayList<Integer> goal_fluents = cargo.getGoal_fluents();
-		long unmet_goals = goal_fluents.stream().filter(fluent -> state[fluent] != 'T').count();
-		return (int) unmet_goals;
+		long[] goal_mask = cargo.getGoal_mask();
+		int unmet_goals = 0;
+		for (int i = 0; i < goal_mask.length; i++) {
+			unmet_goals += Long.bitCount(goal_mask[i] & ~state[i]);
+		}
+		return unmet_goals;
 	}
 
 	/**
@@ -67,94 +167,126 @@ public class CargoState extends State {
 	 */
 	public Collection<? extends Action> executableActions() {
 		List<CargoAction> result = new ArrayList<>();
-		result.addAll(calculate_valid_flyactions());
-		result.addAll(calculate_valid_load_actions());
-		result.addAll(calculate_valid_unload_actions());
-		if (use_seed) {
-			Collections.shuffle(result, RANDOM);
-		}
+		successorActions().forEachRemaining(result::add);
 		return result;
 	}
 
 	/**
-	 * Calculates the valid load actions based on the current state.
+	 * Returns the executable actions one at a time, in the order of the ground
+	 * actions ( fly, then load, then unload ). The applicable ones are looked up
+	 * in the problem's successor generator, which only tests the preconditions
+	 * along the plane locations that hold, instead of every ground action.
 	 *
-	 * @return a list of LoadCargoActions satisfying the preconditions.
+	 * @return an iterator over the valid CargoActions.
 	 */
-	private ArrayList<CargoAction.LoadCargoAction> calculate_valid_load_actions() {
-		return CargoAction.CargoActionFactory.getLoadActions().stream()
-				.filter(this::satisfies_preconditions)
-				.collect(Collectors.toCollection(ArrayList::new));
+	@Override
+	public Iterator<CargoAction> successorActions() {
+		return seeded_order(cargo.getSuccessor_generator().iterator(applicable_actions()));
 	}
 
 	/**
-	 * Calculates the valid fly actions based on the current state.
+	 * Returns the bitset of the applicable actions, deriving it from the
+	 * parent's when it is known and from scratch otherwise.
 	 *
-	 * @return a list of FlyCargoActions satisfying the preconditions.
+	 * @return the applicable actions of the state.
 	 */
-	private ArrayList<CargoAction.FlyCargoAction> calculate_valid_flyactions() {
-		return CargoAction.CargoActionFactory.getFlyActions().stream()
-				.filter(this::satisfies_preconditions)
-				.collect(Collectors.toCollection(ArrayList::new));
+	private long[] applicable_actions() {
+		if (applicable == null) {
+			SuccessorGenerator<CargoAction> generator = cargo.getSuccessor_generator();
+			if (parent_applicable == null) {
+				applicable = generator.applicable(this);
+			} else {
+				applicable = parent_applicable.clone();
+				for (int i = 0; i < state.length; i++) {
+					for (long changed = state[i] ^ parent_state[i]; changed != 0; changed &= changed - 1) {
+						generator.retest(applicable, this, (i << 6) + Long.numberOfTrailingZeros(changed));
+					}
+				}
+			}
+			parent_applicable = null;
+			parent_state = null;
+		}
+		return applicable;
 	}
 
 	/**
-	 * Calculates the valid unload actions based on the current state.
+	 * Returns the given actions as they are or, when a seed was set, in random
+	 * order: they are collected first and handed out one step of a Fisher-Yates
+	 * shuffle per action, so an explorer that stops early does not shuffle the
+	 * rest.
 	 *
-	 * @return a list of UnloadCargoActions satisfying the preconditions.
+	 * @param actions the applicable actions.
+	 * @return an iterator over the same actions.
 	 */
-	private ArrayList<CargoAction.UnloadCargoAction> calculate_valid_unload_actions() {
-		return CargoAction.CargoActionFactory.getUnloadActions().stream()
-				.filter(this::satisfies_preconditions)
-				.collect(Collectors.toCollection(ArrayList::new));
-	}
+	static Iterator<CargoAction> seeded_order(Iterator<CargoAction> actions) {
+		if (!use_seed) {
+			return actions;
+		}
 
-	/**
-	 * Checks if the given action's preconditions are satisfied in the current
-	 * state.
-	 *
-	 * @param action the CargoAction to check.
-	 * @return true if all preconditions are satisfied, false otherwise.
-	 */
-	private boolean satisfies_preconditions(CargoAction action) {
-		return action.getPreconditions().stream().allMatch(precondition -> this.state[precondition] == 'T');
+		List<CargoAction> applicable = new ArrayList<>();
+		actions.forEachRemaining(applicable::add);
+		return new Iterator<CargoAction>() {
+			private int position = 0;
+
+			public boolean hasNext() {
+				return position < applicable.size();
+			}
+
+			public CargoAction next() {
+				if (position >= applicable.size()) {
+					throw new NoSuchElementException();
+				}
+				Collections.swap(applicable, position, position + RANDOM.nextInt(applicable.size() - position));
+				return applicable.get(position++);
+			}
+		};
 	}
 
 	/**
-	 * Returns the resulting state after applying the given action.
+	 * Returns the resulting state after applying the given action. The Zobrist
+	 * hash of the new state is derived from this one by XOR-ing the keys of the
+	 * fluents the action actually flips. Apart from the new state and its
+	 * words nothing is allocated: the action's effects are read from its int
+	 * tables.
 	 *
 	 * @param a the action to apply.
 	 * @return the new CargoState after applying the action.
 	 */
 	public State resultingState(Action a) {
-		// CargoState new_state = (CargoState) this.clone();
-		CargoState new_state = new CargoState(cargo, state.clone());
-		apply_effects(a, new_state);
-		return new_state;
+		CargoAction action = (CargoAction) a;
+		long[] new_state = Arrays.copyOf(this.state, this.state.length);
+		action.apply_effects(new_state);
+
+		long[] keys = cargo.getZobrist_keys();
+		long new_zobrist = this.zobrist;
+		for (int fluent : action.getNegative_effect_fluents()) {
+			if (is_set(this.state, fluent) && !is_set(new_state, fluent)) {
+				new_zobrist ^= keys[fluent];
+			}
+		}
+		for (int fluent : action.getPositive_effect_fluents()) {
+			if (!is_set(this.state, fluent) && is_set(new_state, fluent)) {
+				new_zobrist ^= keys[fluent];
+			}
+		}
+		return new CargoState(cargo, new_state, new_zobrist, this.applicable, this.state);
 	}
 
 	/**
-	 * Applies the effects of the given action to the new cargo state.
+	 * Writes the words of the state the action leads to, without building it.
 	 *
-	 * @param a               the action to apply.
-	 * @param new_cargo_state the new state to modify.
+	 * @param a    the action to apply.
+	 * @param into the array receiving the words.
 	 */
-	private void apply_effects(Action a, CargoState new_cargo_state) {
-		char[] new_state = deepCopyCurrentState();
-
-		a.getNegative_effects().forEach(index -> new_state[index] = 'F');
-		a.getPositive_effects().forEach(index -> new_state[index] = 'T');
-
-		new_cargo_state.setState(new_state);
+	@Override
+	public void resultingWords(Action a, long[] into) {
+		System.arraycopy(this.state, 0, into, 0, this.state.length);
+		((CargoAction) a).apply_effects(into);
 	}
 
-	/**
-	 * Creates a deep copy of the current state array.
-	 *
-	 * @return a deep copy of the current state array.
-	 */
-	private char[] deepCopyCurrentState() {
-		return Arrays.copyOf(this.state, this.state.length);
+	@Override
+	public boolean holds(int fluent) {
+		return is_set(state, fluent);
 	}
 
 	/**
@@ -163,11 +295,19 @@ public class CargoState extends State {
 	 * @return true if all goal conditions are met, false otherwise.
 	 */
 	public boolean isGoal() {
-		return cargo.getGoal_fluents().stream().allMatch(position -> this.state[position] == 'T');
+		long[] goal_mask = cargo.getGoal_mask();
+		for (int i = 0; i < goal_mask.length; i++) {
+			if ((state[i] & goal_mask[i]) != goal_mask[i]) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
-	 * Returns the heuristic value for the current state.
+	 * Returns the heuristic value for the current state. It is computed on the
+	 * first call, so that states discarded as duplicates never pay for it (a
+	 * planning graph for SET_LEVEL), and kept for the following ones.
 	 *
 	 * @return the heuristic value based on unmet goals or other heuristics.
 	 */
@@ -176,14 +316,19 @@ public class CargoState extends State {
 		if (h == null) {
 			return 0;
 		}
-		switch (h) {
-			case UNMET_GOALS:
-				return unmet_goals;
-			case SET_LEVEL:
-				return set_level;
-			default:
-				throw new RuntimeException("Heuristics " + h + " unknown");
+		if (h_value < 0) {
+			switch (h) {
+				case UNMET_GOALS:
+					h_value = calculate_unmet_goals();
+					break;
+				case SET_LEVEL:
+					h_value = calculate_set_level();
+					break;
+				default:
+					throw new RuntimeException("Heuristics " + h + " unknown");
+			}
 		}
+		return h_value;
 	}
 
 	/**
@@ -202,7 +347,30 @@ public class CargoState extends State {
 
 	@Override
 	public int hashCode() {
-		return Arrays.hashCode(state);
+		long h = fingerprint();
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * Returns the Zobrist hash of the state, maintained incrementally by
+	 * resultingState.
+	 *
+	 * @return the fingerprint of the state.
+	 */
+	@Override
+	public long fingerprint() {
+		return zobrist;
+	}
+
+	/**
+	 * Returns the packed words themselves: two states are equal iff their words
+	 * are.
+	 *
+	 * @return the packed state.
+	 */
+	@Override
+	public long[] packedWords() {
+		return state;
 	}
 
 	@Override
@@ -217,8 +385,8 @@ public class CargoState extends State {
 	 */
 	public String printStateVerbose() {
 		StringBuilder sb = new StringBuilder();
-		for (int i = 0; i < state.length; i++) {
-			if (state[i] == 'T') {
+		for (int i = 0; i < cargo.getState_size(); i++) {
+			if (is_set(state, i)) {
 				sb.append(" (" + i + ") " + Cargo.getFluentByIndex(i) + " ");
 			}
 		}
@@ -232,19 +400,19 @@ public class CargoState extends State {
 	 */
 	public String toString() {
 		StringBuilder sb = new StringBuilder("\n");
-		for (int i = 0; i < state.length; i++) {
-			if (state[i] == 'T') {
+		for (int i = 0; i < cargo.getState_size(); i++) {
+			if (is_set(state, i)) {
 				sb.append(Cargo.getFluentByIndex(i) + " ");
 			}
 		}
 		return sb.toString();
 	}
 
-	public char[] getState() {
+	public long[] getState() {
 		return state;
 	}
 
-	public void setState(char[] state) {
+	public void setState(long[] state) {
 		this.state = state;
 	}
 }
@@ -0,0 +1,146 @@
+package it.uniroma1.di.tmancini.teaching.ai.search.cargo;
+
+import java.util.*;
+
+/**
+ * Static mutex groups of the cargo problem: sets of fluents of which at most
+ * one holds in every state reachable from the initial one, such as the fluents
+ * locating a cargo ( at an airport or in a plane ). They are derived once from
+ * the ground actions, so they do not depend on the state and can be shared by
+ * every planning graph and by every consistency check.
+ *
+ * Two fluents are candidates for the same group if an action makes one true
+ * while making false the other, which it requires: the candidate groups are
+ * the connected components of that relation. A candidate is a group if no
+ * action can raise the number of its true fluents, i.e. every action making
+ * one of them true makes exactly one true and deletes one of its own
+ * preconditions in the group, and if at most one of them holds initially.
+ *
+ * The fly actions link the fluents with consecutive indices, across planes
+ * too ( see Cargo.initialize_fly_actions ), so the groups of plane fluents
+ * follow those chains, not the planes: a chain holding two planes initially
+ * is no group.
+ */
+public class MutexGroups {
+
+        private final int[][] groups;
+        private final int[] group_of; // fluent -> group, -1 if in none
+
+        /**
+         * Derives the mutex groups of the given actions.
+         *
+         * @param actions       the ground actions.
+         * @param nb_fluents    the number of fluents.
+         * @param initial_state the bit-packed initial state.
+         */
+        public MutexGroups(List<? extends CargoAction> actions, int nb_fluents, long[] initial_state) {
+                int[] parent = new int[nb_fluents];
+                for (int f = 0; f < nb_fluents; f++) {
+                        parent[f] = f;
+                }
+                for (CargoAction action : actions) {
+                        for (int deleted : deleted_preconditions(action)) {
+                                for (int added : action.getPositive_effect_fluents()) {
+                                        parent[find(parent, added)] = find(parent, deleted);
+                                }
+                        }
+                }
+
+                boolean[] rejected = new boolean[nb_fluents]; // by component root
+                for (CargoAction action : actions) {
+                        int[] added = action.getPositive_effect_fluents();
+                        if (deleted_preconditions(action).length == 0 || added.length > 1) {
+                                for (int f : added) {
+                                        rejected[find(parent, f)] = true;
+                                }
+                        }
+                }
+                int[] initial_counts = new int[nb_fluents];
+                for (int f = 0; f < nb_fluents; f++) {
+                        if (CargoState.is_set(initial_state, f) && ++initial_counts[find(parent, f)] > 1) {
+                                rejected[find(parent, f)] = true;
+                        }
+                }
+
+                int[] sizes = new int[nb_fluents];
+                for (int f = 0; f < nb_fluents; f++) {
+                        sizes[find(parent, f)]++;
+                }
+                this.group_of = new int[nb_fluents];
+                int[] group_of_root = new int[nb_fluents];
+                Arrays.fill(group_of_root, -1);
+                List<int[]> found = new ArrayList<>();
+                int[] filled = new int[nb_fluents];
+                for (int f = 0; f < nb_fluents; f++) {
+                        int root = find(parent, f);
+                        if (rejected[root] || sizes[root] < 2) {
+                                group_of[f] = -1;
+                                continue;
+                        }
+                        if (group_of_root[root] < 0) {
+                                group_of_root[root] = found.size();
+                                found.add(new int[sizes[root]]);
+                        }
+                        group_of[f] = group_of_root[root];
+                        found.get(group_of[f])[filled[root]++] = f;
+                }
+                this.groups = found.toArray(new int[0][]);
+        }
+
+        private static int find(int[] parent, int f) {
+                while (parent[f] != f) {
+                        parent[f] = parent[parent[f]];
+                        f = parent[f];
+                }
+                return f;
+        }
+
+        private static int[] deleted_preconditions(CargoAction action) {
+                int[] preconditions = action.getPrecondition_fluents();
+                return Arrays.stream(action.getNegative_effect_fluents())
+                                .filter(f -> Arrays.stream(preconditions).anyMatch(p -> p == f))
+                                .toArray();
+        }
+
+        /**
+         * Checks if two fluents can never hold together.
+         *
+         * @param fluent1 the first fluent.
+         * @param fluent2 the second fluent.
+         * @return true if they are distinct fluents of the same group.
+         */
+        public boolean are_mutex(int fluent1, int fluent2) {
+                return fluent1 != fluent2 && group_of[fluent1] >= 0 && group_of[fluent1] == group_of[fluent2];
+        }
+
+        /**
+         * Checks that the given fluents can hold together.
+         *
+         * @param fluents the fluent indices.
+         * @return false if two of them belong to the same group.
+         */
+        public boolean are_consistent(int[] fluents) {
+                for (int i = 0; i < fluents.length; i++) {
+                        for (int j = i + 1; j < fluents.length; j++) {
+                                if (are_mutex(fluents[i], fluents[j])) {
+                                        return false;
+                                }
+                        }
+                }
+                return true;
+        }
+
+        /**
+         * Returns the group of the given fluent.
+         *
+         * @param fluent the fluent index.
+         * @return the index of its group in getGroups, or -1 if it is in none.
+         */
+        public int group_of(int fluent) {
+                return group_of[fluent];
+        }
+
+        public int[][] getGroups() {
+                return groups;
+        }
+}
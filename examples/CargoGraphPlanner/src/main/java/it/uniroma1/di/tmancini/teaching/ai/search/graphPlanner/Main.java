@@ -48,7 +48,8 @@ public class Main implements Callable<Integer> {
                 Set<Action> actions = create_graph_planning_actions();
                 Set<Proposition> initial_state = get_initial_state_propositions();
 
-                PlanningGraph planningGraph = new PlanningGraph(initial_state, actions, 50);
+                PlanningGraph planningGraph = new PlanningGraph(initial_state, actions,
+                                this.problem.getMutex_groups().getGroups(), Cargo::getFluentByIndex, 50);
                 planningGraph.printPlanningGraph();
 
                 Set<Proposition> goal = get_goal_state_propositions();
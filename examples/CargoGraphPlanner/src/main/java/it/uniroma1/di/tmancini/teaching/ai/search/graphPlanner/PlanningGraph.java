@@ -1,6 +1,7 @@
 package it.uniroma1.di.tmancini.teaching.ai.search.graphPlanner;
 
 import java.util.*;
+import java.util.function.IntFunction;
 
 /**
  * Represents a proposition in the planning graph.
@@ -111,30 +112,36 @@ class Action {
 
 /**
  * Represents mutual exclusion (mutex) relationships between actions or
- * propositions.
+ * propositions in one layer of the planning graph.
+ * Propositions and actions are identified by the ids assigned by the
+ * planning graph: the mutex propositions of each proposition are kept as a
+ * bitset row, while action mutexes are read from the state-independent
+ * interference masks restricted to the actions of the layer.
  */
 class Mutex {
-        Set<MutexActionLink> mutexActionLinks = new HashSet<>();
-        Set<MutexPropositionLink> mutexPropositionLinks = new HashSet<>();
+        private final Map<Proposition, Integer> proposition_ids;
+        private final Map<Action, Integer> action_ids;
+        private final BitSet[] interference;
+        private final BitSet actions;
+        private final BitSet[] proposition_mutexes;
 
         /**
-         * Adds a mutex link between two actions.
+         * Creates the mutex relationships of a layer.
          *
-         * @param a1 the first action.
-         * @param a2 the second action.
-         */
-        public void addActionMutexLink(Action a1, Action a2) {
-                mutexActionLinks.add(new MutexActionLink(a1, a2));
-        }
-
-        /**
-         * Adds a mutex link between two propositions.
-         *
-         * @param p1 the first proposition.
-         * @param p2 the second proposition.
+         * @param proposition_ids     the ids of the propositions.
+         * @param action_ids          the ids of the actions.
+         * @param interference        for each action, the actions it is mutex with.
+         * @param actions             the actions of the layer.
+         * @param proposition_mutexes for each proposition of the layer, the
+         *                            propositions it is mutex with.
          */
-        public void addPropositionMutexLink(Proposition p1, Proposition p2) {
-                mutexPropositionLinks.add(new MutexPropositionLink(p1, p2));
+        Mutex(Map<Proposition, Integer> proposition_ids, Map<Action, Integer> action_ids, BitSet[] interference,
+                        BitSet actions, BitSet[] proposition_mutexes) {
+                this.proposition_ids = proposition_ids;
+                this.action_ids = action_ids;
+                this.interference = interference;
+                this.actions = actions;
+                this.proposition_mutexes = proposition_mutexes;
         }
 
         /**
@@ -145,7 +152,12 @@ class Mutex {
          * @return true if the actions are mutex, false otherwise.
          */
         public boolean areActionsMutex(Action a1, Action a2) {
-                return mutexActionLinks.contains(new MutexActionLink(a1, a2));
+                Integer id1 = action_ids.get(a1);
+                Integer id2 = action_ids.get(a2);
+                if (id1 == null || id2 == null || id1.equals(id2) || !actions.get(id1) || !actions.get(id2)) {
+                        return false;
+                }
+                return interference[id1].get(id2);
         }
 
         /**
@@ -156,60 +168,38 @@ class Mutex {
          * @return true if the propositions are mutex, false otherwise.
          */
         public boolean arePropositionsMutex(Proposition p1, Proposition p2) {
-                return mutexPropositionLinks.contains(new MutexPropositionLink(p1, p2));
-        }
-
-        /**
-         * Represents a mutual exclusion (mutex) link between two actions.
-         */
-        class MutexActionLink {
-                Action a1;
-                Action a2;
-
-                public MutexActionLink(Action a1, Action a2) {
-                        this.a1 = a1;
-                        this.a2 = a2;
-                }
-
-                @Override
-                public boolean equals(Object obj) {
-                        if (this == obj)
-                                return true;
-                        if (!(obj instanceof MutexActionLink))
-                                return false;
-                        MutexActionLink mal = (MutexActionLink) obj;
-                        return (this.a1.equals(mal.a1) && this.a2.equals(mal.a2)) ||
-                                        (this.a1.equals(mal.a2) && this.a2.equals(mal.a1));
+                Integer id1 = proposition_ids.get(p1);
+                Integer id2 = proposition_ids.get(p2);
+                if (id1 == null || id2 == null || proposition_mutexes[id1] == null) {
+                        return false;
                 }
+                return proposition_mutexes[id1].get(id2);
         }
 
         /**
-         * Represents a mutual exclusion (mutex) link between two propositions.
+         * Returns the propositions mutex with the one with the given id.
+         *
+         * @param id the id of the proposition.
+         * @return the ids of the mutex propositions, or null if the proposition is
+         *         not in the layer.
          */
-        class MutexPropositionLink {
-                Proposition p1;
-                Proposition p2;
-
-                public MutexPropositionLink(Proposition p1, Proposition p2) {
-                        this.p1 = p1;
-                        this.p2 = p2;
-                }
-
-                @Override
-                public boolean equals(Object obj) {
-                        if (this == obj)
-                                return true;
-                        if (!(obj instanceof MutexPropositionLink))
-                                return false;
-                        MutexPropositionLink mpl = (MutexPropositionLink) obj;
-                        return (this.p1.equals(mpl.p1) && this.p2.equals(mpl.p2)) ||
-                                        (this.p1.equals(mpl.p2) && this.p2.equals(mpl.p1));
-                }
+        BitSet getProposition_mutexes(int id) {
+                return proposition_mutexes[id];
         }
 }
 
 /**
  * Represents a planning graph.
+ * Action mutexes (inconsistent effects, interference, competing needs) do not
+ * depend on the layer, so they are computed once as a bitset per action.
+ * Two propositions of a layer are mutex if they are opposites or if every
+ * pair of their supporters is mutex; since the supporters of a proposition
+ * only grow from one layer to the next, only the pairs that were mutex in the
+ * previous layer and gained a supporter, and the pairs involving new
+ * propositions, have to be checked again.
+ * Static mutex groups, sets of propositions of which at most one holds in any
+ * reachable state, make two of their propositions mutex in every layer, and
+ * two actions requiring, or achieving, two such propositions mutex.
  */
 public class PlanningGraph {
 
@@ -218,6 +208,14 @@ public class PlanningGraph {
         List<Mutex> mutexLayers = new ArrayList<>();
         Set<Proposition> initial_state_propositions = new HashSet<>();
 
+        // Proposition ids come in pairs: a proposition and its opposite differ in the lowest bit
+        private final Map<Proposition, Integer> proposition_ids = new HashMap<>();
+        private final Map<Action, Integer> action_ids = new HashMap<>();
+        private BitSet[] achievers;
+        private BitSet[] static_mutexes;
+        private BitSet[] interference;
+        private BitSet[] compatible;
+
         /**
          * Constructs a new PlanningGraph.
          *
@@ -226,12 +224,48 @@ public class PlanningGraph {
          * @param depth        the depth of the planning graph.
          */
         public PlanningGraph(Set<Proposition> initialState, Set<Action> actions, int depth) {
+                this(initialState, actions, Collections.emptyList(), depth);
+        }
+
+        /**
+         * Constructs a new PlanningGraph knowing some static mutex groups, given as
+         * fluent indices.
+         *
+         * @param initialState the initial set of propositions.
+         * @param actions      the set of actions available.
+         * @param mutexGroups  sets of fluents of which at most one holds in any
+         *                     reachable state.
+         * @param fluentNames  the name of the proposition standing for a fluent.
+         * @param depth        the depth of the planning graph.
+         */
+        public PlanningGraph(Set<Proposition> initialState, Set<Action> actions, int[][] mutexGroups,
+                        IntFunction<String> fluentNames, int depth) {
+                this(initialState, actions, to_propositions(mutexGroups, fluentNames), depth);
+        }
+
+        /**
+         * Constructs a new PlanningGraph knowing some static mutex groups.
+         *
+         * @param initialState the initial set of propositions.
+         * @param actions      the set of actions available.
+         * @param mutexGroups  sets of propositions of which at most one holds in
+         *                     any reachable state.
+         * @param depth        the depth of the planning graph.
+         */
+        private PlanningGraph(Set<Proposition> initialState, Set<Action> actions, List<Set<Proposition>> mutexGroups,
+                        int depth) {
+                index(initialState, actions, mutexGroups);
+
                 Set<Proposition> currentPropositions = new HashSet<>(initialState);
                 propositionLayers.add(currentPropositions);
 
+                BitSet previousActions = new BitSet();
+                BitSet previousPropositions = new BitSet();
+                Mutex previousMutex = null;
+
                 for (int i = 0; i < depth; i++) {
-                        Mutex mutexLayer = new Mutex();
                         Set<Action> newActions = new HashSet<>();
+                        BitSet layerActions = new BitSet();
 
                         Set<Proposition> oldPropositions = propositionLayers.get(propositionLayers.size() - 1);
                         Set<Proposition> newPropositions = new HashSet<>(oldPropositions);
@@ -239,28 +273,28 @@ public class PlanningGraph {
                         for (Action action : actions) {
                                 if (action.canBeApplied(currentPropositions)) {
                                         newActions.add(action);
+                                        layerActions.set(action_ids.get(action));
                                         newPropositions.addAll(action.effects);
-
-                                        for (Action otherAction : newActions) {
-                                                if (action != otherAction && areActionsMutex(action, otherAction)) {
-                                                        mutexLayer.addActionMutexLink(action, otherAction);
-                                                }
-                                        }
                                 }
                         }
 
+                        BitSet layerPropositions = new BitSet();
+                        for (Proposition p : newPropositions) {
+                                layerPropositions.set(proposition_ids.get(p));
+                        }
+
+                        Mutex mutexLayer = new Mutex(proposition_ids, action_ids, interference, layerActions,
+                                        propagate_mutexes(previousMutex, previousActions, previousPropositions,
+                                                        layerActions, layerPropositions));
+
                         actionLayers.add(newActions);
                         propositionLayers.add(newPropositions);
                         mutexLayers.add(mutexLayer);
                         currentPropositions = newPropositions;
 
-                        for (Proposition p1 : newPropositions) {
-                                for (Proposition p2 : newPropositions) {
-                                        if (!p1.equals(p2) && arePropositionsMutex(p1, p2, newActions)) {
-                                                mutexLayer.addPropositionMutexLink(p1, p2);
-                                        }
-                                }
-                        }
+                        previousActions = layerActions;
+                        previousPropositions = layerPropositions;
+                        previousMutex = mutexLayer;
 
                         if (oldPropositions.equals(newPropositions)) {
                                 break;
@@ -269,75 +303,209 @@ public class PlanningGraph {
         }
 
         /**
-         * Checks if two actions are mutually exclusive (mutex).
+         * Turns mutex groups of fluents into mutex groups of propositions.
          *
-         * @param a1 the first action.
-         * @param a2 the second action.
-         * @return true if the actions are mutex, false otherwise.
+         * @param mutexGroups the groups, as fluent indices.
+         * @param fluentNames the name of the proposition standing for a fluent.
+         * @return the groups, as propositions.
          */
-        private boolean areActionsMutex(Action a1, Action a2) {
-                return inconsistent_effect(a1, a2) || interference(a1, a2) || competing_needs(a1, a2);
+        private static List<Set<Proposition>> to_propositions(int[][] mutexGroups, IntFunction<String> fluentNames) {
+                List<Set<Proposition>> groups = new ArrayList<>();
+                for (int[] group : mutexGroups) {
+                        Set<Proposition> propositions = new HashSet<>();
+                        for (int fluent : group) {
+                                propositions.add(new Proposition(fluentNames.apply(fluent)));
+                        }
+                        groups.add(propositions);
+                }
+                return groups;
         }
 
         /**
-         * Checks for competing needs between two actions.
+         * Assigns ids to propositions and actions, and precomputes the supporters
+         * of each proposition and the actions each action is mutex with.
          *
-         * @param a1 the first action.
-         * @param a2 the second action.
-         * @return true if there are competing needs, false otherwise.
+         * @param initialState the initial set of propositions.
+         * @param actions      the set of actions available.
+         * @param mutexGroups  the static mutex groups.
          */
-        private boolean competing_needs(Action a1, Action a2) {
-                for (Proposition precondition1 : a1.preconditions) {
-                        for (Proposition precondition2 : a2.preconditions) {
-                                if (precondition1.areOpposites(precondition2)) {
-                                        return true;
+        private void index(Set<Proposition> initialState, Set<Action> actions, List<Set<Proposition>> mutexGroups) {
+                for (Proposition p : initialState) {
+                        id_of(p);
+                }
+                mutexGroups.forEach(group -> group.forEach(this::id_of));
+                List<Action> action_list = new ArrayList<>(actions);
+                for (Action action : action_list) {
+                        action_ids.put(action, action_ids.size());
+                        action.preconditions.forEach(this::id_of);
+                        action.effects.forEach(this::id_of);
+                }
+
+                int nb_propositions = proposition_ids.size();
+                int nb_actions = action_list.size();
+
+                // Actions having the proposition as a precondition or as an effect
+                BitSet[] involving = new BitSet[nb_propositions];
+                BitSet[] consumers = new BitSet[nb_propositions];
+                achievers = new BitSet[nb_propositions];
+                for (int p = 0; p < nb_propositions; p++) {
+                        involving[p] = new BitSet(nb_actions);
+                        consumers[p] = new BitSet(nb_actions);
+                        achievers[p] = new BitSet(nb_actions);
+                }
+                for (int a = 0; a < nb_actions; a++) {
+                        for (Proposition precondition : action_list.get(a).preconditions) {
+                                involving[proposition_ids.get(precondition)].set(a);
+                                consumers[proposition_ids.get(precondition)].set(a);
+                        }
+                        for (Proposition effect : action_list.get(a).effects) {
+                                involving[proposition_ids.get(effect)].set(a);
+                                achievers[proposition_ids.get(effect)].set(a);
+                        }
+                }
+
+                static_mutexes = new BitSet[nb_propositions];
+                for (int p = 0; p < nb_propositions; p++) {
+                        static_mutexes[p] = new BitSet(nb_propositions);
+                }
+                for (Set<Proposition> group : mutexGroups) {
+                        for (Proposition p1 : group) {
+                                for (Proposition p2 : group) {
+                                        if (!p1.equals(p2)) {
+                                                static_mutexes[proposition_ids.get(p1)].set(proposition_ids.get(p2));
+                                        }
                                 }
                         }
                 }
-                return false;
+
+                // Actions requiring, or achieving, a proposition statically mutex with p
+                BitSet[] requiring_mutex = new BitSet[nb_propositions];
+                BitSet[] achieving_mutex = new BitSet[nb_propositions];
+                for (int p = 0; p < nb_propositions; p++) {
+                        requiring_mutex[p] = new BitSet(nb_actions);
+                        achieving_mutex[p] = new BitSet(nb_actions);
+                        for (int q = static_mutexes[p].nextSetBit(0); q >= 0; q = static_mutexes[p].nextSetBit(q + 1)) {
+                                requiring_mutex[p].or(consumers[q]);
+                                achieving_mutex[p].or(achievers[q]);
+                        }
+                }
+
+                // Two actions are mutex if a precondition or effect of one is the opposite
+                // of a precondition or effect of the other (an action may be mutex with
+                // itself, when it deletes one of its preconditions)
+                interference = new BitSet[nb_actions];
+                compatible = new BitSet[nb_actions];
+                for (int a = 0; a < nb_actions; a++) {
+                        interference[a] = new BitSet(nb_actions);
+                        for (Proposition precondition : action_list.get(a).preconditions) {
+                                interference[a].or(involving[proposition_ids.get(precondition) ^ 1]);
+                                interference[a].or(requiring_mutex[proposition_ids.get(precondition)]);
+                        }
+                        for (Proposition effect : action_list.get(a).effects) {
+                                interference[a].or(involving[proposition_ids.get(effect) ^ 1]);
+                                interference[a].or(achieving_mutex[proposition_ids.get(effect)]);
+                        }
+                        compatible[a] = new BitSet(nb_actions);
+                        compatible[a].set(0, nb_actions);
+                        compatible[a].andNot(interference[a]);
+                }
         }
 
         /**
-         * Checks for interference between two actions.
+         * Returns the id of a proposition, assigning ids to it and to its opposite
+         * if it has none.
          *
-         * @param a1 the first action.
-         * @param a2 the second action.
-         * @return true if there is interference, false otherwise.
+         * @param p the proposition.
+         * @return the id of the proposition.
          */
-        private boolean interference(Action a1, Action a2) {
-                for (Proposition effect1 : a1.effects) {
-                        for (Proposition precondition2 : a2.preconditions) {
-                                if (effect1.areOpposites(precondition2)) {
-                                        return true;
-                                }
+        private int id_of(Proposition p) {
+                Integer id = proposition_ids.get(p);
+                if (id == null) {
+                        String positive = p.name.startsWith("!") ? p.name.substring(1) : p.name;
+                        int base = proposition_ids.size();
+                        proposition_ids.put(new Proposition(positive), base);
+                        proposition_ids.put(new Proposition("!" + positive), base + 1);
+                        id = proposition_ids.get(p);
+                }
+                return id;
+        }
+
+        /**
+         * Computes the proposition mutexes of a layer from those of the previous
+         * one. Each unordered pair is decided once; a pair of propositions already
+         * in the previous layer keeps its previous verdict unless it was mutex and
+         * one of the two gained a supporter.
+         *
+         * @param previousMutex       the mutexes of the previous layer, or null for
+         *                            the first one.
+         * @param previousActions     the actions of the previous layer.
+         * @param previousPropositions the propositions of the previous layer.
+         * @param layerActions        the actions of the layer.
+         * @param layerPropositions   the propositions of the layer.
+         * @return for each proposition of the layer, the propositions it is mutex
+         *         with (null for the propositions not in the layer).
+         */
+        private BitSet[] propagate_mutexes(Mutex previousMutex, BitSet previousActions, BitSet previousPropositions,
+                        BitSet layerActions, BitSet layerPropositions) {
+                int nb_propositions = proposition_ids.size();
+                BitSet[] mutexes = new BitSet[nb_propositions];
+                BitSet[] supporters = new BitSet[nb_propositions];
+
+                BitSet addedActions = (BitSet) layerActions.clone();
+                addedActions.andNot(previousActions);
+                BitSet addedPropositions = (BitSet) layerPropositions.clone();
+                if (previousMutex != null) {
+                        addedPropositions.andNot(previousPropositions);
+                }
+
+                BitSet grown = new BitSet(nb_propositions);
+                for (int p = layerPropositions.nextSetBit(0); p >= 0; p = layerPropositions.nextSetBit(p + 1)) {
+                        mutexes[p] = new BitSet(nb_propositions);
+                        supporters[p] = (BitSet) achievers[p].clone();
+                        supporters[p].and(layerActions);
+                        if (achievers[p].intersects(addedActions)) {
+                                grown.set(p);
                         }
                 }
-                for (Proposition effect2 : a2.effects) {
-                        for (Proposition precondition1 : a1.preconditions) {
-                                if (effect2.areOpposites(precondition1)) {
-                                        return true;
+
+                BitSet candidates = new BitSet(nb_propositions);
+                for (int p = layerPropositions.nextSetBit(0); p >= 0; p = layerPropositions.nextSetBit(p + 1)) {
+                        if (addedPropositions.get(p)) {
+                                candidates.clear();
+                                candidates.or(layerPropositions);
+                        } else {
+                                candidates.clear();
+                                candidates.or(previousMutex.getProposition_mutexes(p));
+                                candidates.or(addedPropositions);
+                        }
+                        for (int q = candidates.nextSetBit(p + 1); q >= 0; q = candidates.nextSetBit(q + 1)) {
+                                boolean unchanged = !addedPropositions.get(p) && !addedPropositions.get(q)
+                                                && !grown.get(p) && !grown.get(q);
+                                if (unchanged || q == (p ^ 1) || static_mutexes[p].get(q)
+                                                || areSupportersMutex(supporters[p], supporters[q])) {
+                                        mutexes[p].set(q);
+                                        mutexes[q].set(p);
                                 }
                         }
                 }
-                return false;
+                return mutexes;
         }
 
         /**
-         * Checks if two actions have inconsistent effects.
+         * Checks if every action supporting a proposition is mutex with every
+         * action supporting another one.
          *
-         * @param a1 the first action.
-         * @param a2 the second action.
-         * @return true if the effects are inconsistent, false otherwise.
+         * @param supporters1 the actions supporting the first proposition.
+         * @param supporters2 the actions supporting the second proposition.
+         * @return true if all the respective actions are mutex, false otherwise.
          */
-        private boolean inconsistent_effect(Action a1, Action a2) {
-                for (Proposition effect1 : a1.effects) {
-                        for (Proposition effect2 : a2.effects) {
-                                if (effect1.areOpposites(effect2)) {
-                                        return true;
-                                }
+        private boolean areSupportersMutex(BitSet supporters1, BitSet supporters2) {
+                for (int a = supporters1.nextSetBit(0); a >= 0; a = supporters1.nextSetBit(a + 1)) {
+                        if (compatible[a].intersects(supporters2)) {
+                                return false;
                         }
                 }
-                return false;
+                return true;
         }
 
         /**
@@ -357,48 +525,6 @@ public class PlanningGraph {
                 return Integer.MAX_VALUE;
         }
 
-        /**
-         * Checks if two propositions are mutually exclusive (mutex).
-         * Propositions are mutex if they are opposites or all all the actions
-         * supporting a1 are mutex to those supporting a2
-         *
-         * @param p1 the first proposition.
-         * @param p2 the second proposition.
-         * @return true if the propositions are mutex, false otherwise.
-         */
-        private boolean arePropositionsMutex(Proposition p1, Proposition p2, Set<Action> newActions) {
-
-                // Propositions are opposites
-                if (p1.name.equals("!" + p2.name) || p2.name.equals("!" + p1.name)) {
-                        return true;
-                }
-
-                Set<Action> actions_supporting_p1 = new HashSet<>();
-                Set<Action> actions_supporting_p2 = new HashSet<>();
-
-                // Returns true if all respective actions are mutex
-                for (Action action : newActions) {
-
-                        if (action.effects.contains(p1)) {
-                                actions_supporting_p1.add(action);
-                        }
-
-                        if (action.effects.contains(p2)) {
-                                actions_supporting_p2.add(action);
-                        }
-                }
-
-                for (Action a1 : actions_supporting_p1) {
-                        for (Action a2 : actions_supporting_p2) {
-                                if (!areActionsMutex(a1, a2)) {
-                                        return false;
-                                }
-                        }
-                }
-
-                return true;
-        }
-
         /**
          * Checks if the goals are mutually exclusive at the given layer.
          *
@@ -5,6 +5,7 @@ SEEDS=(42 43 44)
 
 ALGORITHMS=(
   "BFS"
+  "PBFS"
   "DFS"
   "MINCOST"
   "A*:UNMET_GOALS"
@@ -0,0 +1,196 @@
+package it.uniroma1.di.tmancini.teaching.ai.search;
+
+import java.util.*;
+
+// Anytime repairing A* (ARA*). A first weighted A* search, ordering nodes by
+// g + w * h with a large w, finds a plan quickly; the weight is then lowered
+// step by step and the search resumed instead of restarted. Within a search
+// every state is expanded at most once: a closed state whose g improves is
+// set aside in an INCONS list, and before the next search INCONS is merged
+// back into the open list, which is re-sorted for the new weight.
+//
+// Each search stops as soon as no open node can lead to a cheaper plan under
+// the current weight. Every improved plan is published to the listener along
+// with its suboptimality bound, min(w, cost / min(g + h)) over the open and
+// INCONS nodes; the search ends when the bound reaches 1 (the plan is then
+// optimal for a consistent heuristic) or when the time budget runs out.
+public class ARAstarExplorer extends SearchStateExplorer {
+
+	// Notified of every plan cheaper than the previous ones.
+	public interface SolutionListener {
+		void solutionFound(List<Action> plan, double cost, double suboptimalityBound);
+	}
+
+	private double initialWeight = 5;
+	private double weightStep = 0.5;
+	private long timeBudgetMsec = 0;
+	private SolutionListener listener;
+
+	private double weight;
+	private long deadline;
+	private Map<State, SearchNode> best; // node with the lowest g of every generated state
+	private Set<State> closed;
+	private List<SearchNode> incons;
+	private SearchNode incumbent;
+	private double incumbentCost;
+
+	public ARAstarExplorer(Problem p, Integer maxDepth, String outFileName) {
+		super(p, maxDepth, outFileName);
+		super.setFrontier( new IndexedHeapFrontier((n1, n2) -> Double.compare(key(n1), key(n2))) );
+	}
+	public ARAstarExplorer(Problem p, Integer maxDepth) {
+		this(p, maxDepth, null);
+	}
+	public ARAstarExplorer(Problem p) {
+		this(p, null, null);
+	}
+
+	public void setInitialWeight(double w) {
+		if (w < 1) {
+			throw new RuntimeException("initial weight must be >= 1");
+		}
+		this.initialWeight = w;
+	}
+
+	public void setWeightStep(double step) {
+		if (step <= 0) {
+			throw new RuntimeException("weight step must be > 0");
+		}
+		this.weightStep = step;
+	}
+
+	// Wall-clock budget for the whole run, 0 for no limit.
+	public void setTimeBudgetMsec(long msec) {
+		if (msec < 0) {
+			throw new RuntimeException("time budget must be >= 0");
+		}
+		this.timeBudgetMsec = msec;
+	}
+
+	public void setSolutionListener(SolutionListener l) {
+		this.listener = l;
+	}
+
+	public String toString() {
+		return "ARA* search";
+	}
+
+	private double key(SearchNode n) {
+		return n.gValue() + weight * n.hValue();
+	}
+
+	// Searches until the plan is proven optimal or the time budget runs out,
+	// returning the best plan found.
+	public List<Action> run(State initialState, boolean findBestSolution) {
+		isRunning = true;
+		nbIter = 0;
+		maxFrontierSize = 0;
+		deadline = timeBudgetMsec > 0 ? System.currentTimeMillis() + timeBudgetMsec : Long.MAX_VALUE;
+		best = new HashMap<State, SearchNode>();
+		closed = new HashSet<State>();
+		incons = new ArrayList<SearchNode>();
+		incumbent = null;
+		incumbentCost = Double.POSITIVE_INFINITY;
+
+		weight = initialWeight;
+		frontier.clear();
+		SearchNode root = new SearchNode(initialState);
+		best.put(initialState, root);
+		if (initialState.isGoal()) {
+			incumbent = root;
+			incumbentCost = 0;
+		} else {
+			frontier.enqueue(root);
+		}
+
+		while (true) {
+			boolean completed = improvePath();
+			double bound = suboptimalityBound();
+			if (verbosity.ordinal() >= VERBOSITY.statsonly.ordinal()) {
+				System.out.println("ARA* search with weight " + weight + " done, suboptimality bound " + bound);
+				outputStats();
+			}
+			if (!completed || bound <= 1 || weight <= 1) break;
+
+			weight = Math.max(1, weight - weightStep);
+			List<SearchNode> open = new ArrayList<SearchNode>(incons);
+			for (SearchNode n : frontier) {
+				open.add(n);
+			}
+			frontier.clear();
+			for (SearchNode n : open) {
+				frontier.enqueue(n);
+			}
+			incons.clear();
+			closed.clear();
+		}
+
+		best = null;
+		closed = null;
+		incons = null;
+		frontier.clear();
+		isRunning = false;
+		return incumbent == null ? null : planTo(incumbent);
+	}
+
+	// Expands nodes until none can improve the incumbent under the current
+	// weight; returns false if the time budget ran out first.
+	private boolean improvePath() {
+		SearchNode improvedFrom = incumbent;
+		boolean completed = true;
+		while (!frontier.isEmpty()) {
+			if (System.currentTimeMillis() >= deadline) {
+				completed = false;
+				break;
+			}
+			SearchNode node = frontier.dequeue();
+			if (key(node) >= incumbentCost) {
+				frontier.enqueue(node); // sorted by key: nothing left can improve the incumbent
+				break;
+			}
+
+			nbIter++;
+			if (maxFrontierSize < frontier.size()) {
+				maxFrontierSize = frontier.size();
+			}
+			closed.add(node.getState());
+			if (getMaxDepth() != null && node.getDepth() >= getMaxDepth()) continue;
+			for (Action a : node.getState().executableActions()) {
+				SearchNode child = new SearchNode(node, a);
+				State s = child.getState();
+				SearchNode old = best.get(s);
+				if (old != null && old.gValue() <= child.gValue()) continue;
+				best.put(s, child);
+				if (s.isGoal()) {
+					if (child.gValue() < incumbentCost) {
+						incumbent = child;
+						incumbentCost = child.gValue();
+					}
+				} else if (closed.contains(s)) {
+					incons.add(child);
+				} else {
+					frontier.enqueue(child);
+				}
+			}
+		}
+		if (incumbent != improvedFrom && listener != null) {
+			listener.solutionFound(planTo(incumbent), incumbentCost, suboptimalityBound());
+		}
+		return completed;
+	}
+
+	private double suboptimalityBound() {
+		if (incumbent == null) return Double.POSITIVE_INFINITY;
+		double lowest = incumbentCost;
+		for (SearchNode n : frontier) {
+			lowest = Math.min(lowest, n.fValue());
+		}
+		for (SearchNode n : incons) {
+			if (best.get(n.getState()) == n) {
+				lowest = Math.min(lowest, n.fValue());
+			}
+		}
+		return lowest > 0 ? Math.min(weight, incumbentCost / lowest) : weight;
+	}
+
+} //:~
@@ -5,7 +5,9 @@ public class AstarExplorer extends SearchStateExplorer {
 
 	public AstarExplorer(Problem p, Integer maxDepth, String outFileName) {	
 		super(p, maxDepth,outFileName);
-		super.setFrontier( new MinFcostFrontier() );
+		super.setFrontier( p.hasIntegerCosts()
+				? new BucketFrontier(SearchNode::fValue, SearchNode::hValue)
+				: new MinFcostFrontier() );
 	}
 	public AstarExplorer(Problem p, Integer maxDepth) {
 		this(p, maxDepth, null);
@@ -5,7 +5,9 @@ public class BestFirstGreedyExplorer extends SearchStateExplorer {
 
 	public BestFirstGreedyExplorer(Problem p, Integer maxDepth, String outFileName) {	
 		super(p, maxDepth, outFileName);
-		super.setFrontier( new MinHcostFrontier() );
+		super.setFrontier( p.hasIntegerCosts()
+				? new BucketFrontier(SearchNode::hValue, SearchNode::gValue)
+				: new MinHcostFrontier() );
 	}
 	public BestFirstGreedyExplorer(Problem p, Integer maxDepth) {
 		this(p, maxDepth, null);
@@ -17,5 +19,10 @@ public class BestFirstGreedyExplorer extends SearchStateExplorer {
 	public String toString() {
 		return "Best-first greedy search";
 	}
+
+	// The first goal found is as good as any: no need to generate its siblings.
+	protected boolean testsGoalOnGeneration() {
+		return true;
+	}
 	
 } //:~
\ No newline at end of file
@@ -0,0 +1,327 @@
+package it.uniroma1.di.tmancini.teaching.ai.search;
+
+import java.util.*;
+
+// Bidirectional uniform-cost search for problems described by fluents (see
+// Problem.nbFluents). The forward side searches from the initial state; the
+// backward side regresses the goal, and its nodes are subgoals: sets of
+// fluents that must hold. Regressing a subgoal G through an action that adds
+// some fluent of G and deletes none gives pre(a) + (G - add(a)), the weakest
+// condition under which the action leads to a state satisfying G; subgoals
+// the problem reports as inconsistent are dropped.
+//
+// The two sides meet when a forward state satisfies a subgoal: the plan is
+// the one reaching the state followed by the actions regressed from the
+// subgoal back to the goal. Every generated node is checked against all the
+// nodes generated by the other side, keeping the cheapest meeting cost mu.
+// Both sides pop nodes in order of g, so the node just popped from one side
+// and the last popped from the other bound from below every connection not
+// yet found: once their sum reaches mu the plan found is optimal. The side
+// with the smaller open list is expanded.
+public class BidirectionalExplorer extends SearchStateExplorer {
+
+	private List<Action> actions;
+	private Map<Action, Integer> actionIds;
+	private int[][] preconditions;
+	private int[][] additions;
+	private int[][] deletions; // deleted and not added back
+	private int[][] achievers; // fluent -> ids of the actions adding it
+	private int[] visited; // per action, last stamp it was considered
+	private int stamp;
+
+	private Map<State, SearchNode> forwardReached; // best node of every generated state
+	private Map<Subgoal, SearchNode> backwardReached;
+	private List<List<State>> forwardByFluent; // generated states in which the fluent holds
+	private List<List<Subgoal>> backwardByAnchor; // generated subgoals by their smallest fluent
+
+	private SearchNode forwardRoot;
+	private double mu;
+	private SearchNode forwardMeet;
+	private SearchNode backwardMeet;
+
+	public BidirectionalExplorer(Problem p, Integer maxDepth, String outFileName) {
+		super(p, maxDepth, outFileName);
+		super.setFrontier( newFrontier() ); // not used: each side has its own
+	}
+	public BidirectionalExplorer(Problem p, Integer maxDepth) {
+		this(p, maxDepth, null);
+	}
+	public BidirectionalExplorer(Problem p) {
+		this(p, null, null);
+	}
+
+	private Frontier newFrontier() {
+		return getProblem().hasIntegerCosts()
+				? new BucketFrontier(SearchNode::gValue, n -> 0)
+				: new MinGcostFrontier();
+	}
+
+	public String toString() {
+		return "Bidirectional min-cost search";
+	}
+
+	// The plan returned is always a cheapest one.
+	public List<Action> run(State initialState, boolean findBestSolution) {
+		isRunning = true;
+		nbIter = 0;
+		maxFrontierSize = 0;
+		if (initialState.isGoal()) {
+			isRunning = false;
+			return new LinkedList<Action>();
+		}
+
+		Problem p = getProblem();
+		indexActions(p);
+		forwardReached = new HashMap<State, SearchNode>();
+		backwardReached = new HashMap<Subgoal, SearchNode>();
+		forwardByFluent = new ArrayList<List<State>>();
+		backwardByAnchor = new ArrayList<List<Subgoal>>();
+		for (int f = 0; f < p.nbFluents(); f++) {
+			forwardByFluent.add(new ArrayList<State>());
+			backwardByAnchor.add(new ArrayList<Subgoal>());
+		}
+		mu = Double.POSITIVE_INFINITY;
+		forwardMeet = null;
+		backwardMeet = null;
+
+		Frontier forward = newFrontier();
+		Frontier backward = newFrontier();
+		ClosedList forwardClosed = new HashSetClosedList();
+		ClosedList backwardClosed = new HashSetClosedList();
+
+		int[] goal = p.goalFluents().clone();
+		Arrays.sort(goal);
+		forwardRoot = new SearchNode(initialState);
+		SearchNode goalRoot = new SearchNode(new Subgoal(goal));
+		forward.enqueue(forwardRoot);
+		reachedForward(forwardRoot);
+		backward.enqueue(goalRoot);
+		reachedBackward(goalRoot);
+
+		double lastForward = 0;
+		double lastBackward = 0;
+		// An empty side has been fully explored, and all its meetings found
+		while (!forward.isEmpty() && !backward.isEmpty()) {
+			if (maxFrontierSize < forward.size() + backward.size()) {
+				maxFrontierSize = forward.size() + backward.size();
+			}
+			if (verbosity.ordinal() >= VERBOSITY.statsonly.ordinal() && nbIter % 100 == 0) {
+				outputStats();
+			}
+
+			boolean isForward = forward.size() <= backward.size();
+			Frontier open = isForward ? forward : backward;
+			ClosedList closed = isForward ? forwardClosed : backwardClosed;
+			SearchNode node = open.dequeue();
+			if (isForward) {
+				lastForward = node.gValue();
+			} else {
+				lastBackward = node.gValue();
+			}
+			if (lastForward + lastBackward >= mu) break;
+
+			nbIter++;
+			closed.add(node.getState());
+			if (getMaxDepth() != null && node.getDepth() >= getMaxDepth()) continue;
+			for (Action a : node.getState().executableActions()) {
+				SearchNode child = new SearchNode(node, a);
+				if (closed.contains(child.getState())) continue;
+				if (!open.enqueue(child)) continue;
+				if (isForward) {
+					reachedForward(child);
+				} else {
+					reachedBackward(child);
+				}
+			}
+		}
+
+		List<Action> plan = null;
+		if (forwardMeet != null) {
+			plan = planTo(forwardMeet);
+			for (SearchNode n = backwardMeet; n.getAction() != null; n = n.getParent()) {
+				plan.add(n.getAction());
+			}
+		}
+		forwardRoot = null;
+		forwardReached = null;
+		backwardReached = null;
+		forwardByFluent = null;
+		backwardByAnchor = null;
+		isRunning = false;
+		return plan;
+	}
+
+	private void indexActions(Problem p) {
+		actions = new ArrayList<Action>(p.groundActions());
+		actionIds = new IdentityHashMap<Action, Integer>();
+		preconditions = new int[actions.size()][];
+		additions = new int[actions.size()][];
+		deletions = new int[actions.size()][];
+		visited = new int[actions.size()];
+		stamp = 0;
+		List<List<Integer>> adders = new ArrayList<List<Integer>>();
+		for (int f = 0; f < p.nbFluents(); f++) {
+			adders.add(new ArrayList<Integer>());
+		}
+		for (int id = 0; id < actions.size(); id++) {
+			Action a = actions.get(id);
+			actionIds.put(a, id);
+			preconditions[id] = sortedSet(a.getPreconditions());
+			additions[id] = sortedSet(a.getPositive_effects());
+			List<Integer> deleted = new ArrayList<Integer>(a.getNegative_effects());
+			deleted.removeAll(a.getPositive_effects());
+			deletions[id] = sortedSet(deleted);
+			for (int f : additions[id]) {
+				adders.get(f).add(id);
+			}
+		}
+		achievers = new int[p.nbFluents()][];
+		for (int f = 0; f < achievers.length; f++) {
+			achievers[f] = adders.get(f).stream().mapToInt(Integer::intValue).toArray();
+		}
+	}
+
+	private static int[] sortedSet(Collection<Integer> fluents) {
+		return fluents.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+	}
+
+	private void reachedForward(SearchNode node) {
+		State s = node.getState();
+		boolean isNew = forwardReached.put(s, node) == null;
+		for (int f = 0; f < forwardByFluent.size(); f++) {
+			if (!s.holds(f)) continue;
+			if (isNew) {
+				forwardByFluent.get(f).add(s);
+			}
+			for (Subgoal g : backwardByAnchor.get(f)) {
+				if (g.isSatisfiedBy(s)) {
+					meet(node, backwardReached.get(g));
+				}
+			}
+		}
+	}
+
+	private void reachedBackward(SearchNode node) {
+		Subgoal g = (Subgoal) node.getState();
+		if (g.fluents.length == 0) {
+			meet(forwardRoot, node); // satisfied by every state
+			return;
+		}
+		if (backwardReached.put(g, node) == null) {
+			backwardByAnchor.get(g.fluents[0]).add(g);
+		}
+		// Only the states in which the rarest fluent of the subgoal holds are candidates
+		List<State> candidates = null;
+		for (int f : g.fluents) {
+			List<State> states = forwardByFluent.get(f);
+			if (candidates == null || states.size() < candidates.size()) {
+				candidates = states;
+			}
+		}
+		for (State s : candidates) {
+			if (g.isSatisfiedBy(s)) {
+				meet(forwardReached.get(s), node);
+			}
+		}
+	}
+
+	private void meet(SearchNode f, SearchNode b) {
+		if (f.gValue() + b.gValue() < mu) {
+			mu = f.gValue() + b.gValue();
+			forwardMeet = f;
+			backwardMeet = b;
+		}
+	}
+
+	// Partial state of the backward search: the sorted fluents that must hold.
+	private class Subgoal extends State {
+
+		final int[] fluents;
+		private final int hash;
+
+		Subgoal(int[] fluents) {
+			super(BidirectionalExplorer.this.getProblem());
+			this.fluents = fluents;
+			this.hash = Arrays.hashCode(fluents);
+		}
+
+		boolean isSatisfiedBy(State s) {
+			for (int f : fluents) {
+				if (!s.holds(f)) return false;
+			}
+			return true;
+		}
+
+		// The actions this subgoal can be regressed through.
+		public Collection<? extends Action> executableActions() {
+			List<Action> result = new ArrayList<Action>();
+			stamp++;
+			for (int f : fluents) {
+				for (int id : achievers[f]) {
+					if (visited[id] == stamp) continue;
+					visited[id] = stamp;
+					if (regress(id) != null) {
+						result.add(actions.get(id));
+					}
+				}
+			}
+			return result;
+		}
+
+		public State resultingState(Action a) {
+			return regress(actionIds.get(a));
+		}
+
+		private Subgoal regress(int id) {
+			for (int f : deletions[id]) {
+				if (Arrays.binarySearch(fluents, f) >= 0) return null;
+			}
+			int[] pre = preconditions[id];
+			int[] add = additions[id];
+			int[] merged = new int[fluents.length + pre.length];
+			int n = 0;
+			int i = 0;
+			int j = 0;
+			while (i < fluents.length || j < pre.length) {
+				int f;
+				if (j == pre.length || (i < fluents.length && fluents[i] < pre[j])) {
+					f = fluents[i++];
+					if (Arrays.binarySearch(add, f) >= 0) continue;
+				} else if (i == fluents.length || pre[j] < fluents[i]) {
+					f = pre[j++];
+				} else {
+					f = pre[j++];
+					i++;
+				}
+				merged[n++] = f;
+			}
+			int[] result = Arrays.copyOf(merged, n);
+			return getProblem().isConsistent(result) ? new Subgoal(result) : null;
+		}
+
+		public boolean isGoal() {
+			return false; // never tested: meetings are found by isSatisfiedBy
+		}
+
+		public double hValue() {
+			return 0;
+		}
+
+		public boolean equals(Object o) {
+			return o instanceof Subgoal && Arrays.equals(fluents, ((Subgoal) o).fluents);
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+
+		public String toString() {
+			return Arrays.toString(fluents);
+		}
+
+		public String toStringWithPrefix(String prefix) {
+			return prefix + toString();
+		}
+	}
+
+} //:~
@@ -0,0 +1,121 @@
+package it.uniroma1.di.tmancini.teaching.ai.search;
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+
+// Priority frontier for problems whose priorities are small non-negative
+// integers (see Problem.hasIntegerCosts): nodes are kept in FIFO buckets
+// indexed by their primary key and, within it, by a secondary tie-breaking
+// key, so enqueue and dequeue take O(1) amortized time. Keys too large to
+// index (e.g. infinite heuristic values) go to an overflow bucket that is
+// drained last. A cheaper node for a state already in the frontier is simply
+// added; the old one stays in its bucket and is skipped when reached.
+public class BucketFrontier extends Frontier {
+
+	private static final int MAX_KEY = 1 << 20;
+
+	private final ToDoubleFunction<SearchNode> primary;
+	private final ToDoubleFunction<SearchNode> secondary;
+
+	private final ArrayList<ArrayList<ArrayDeque<SearchNode>>> buckets;
+	private int[] counts; // nodes (stale ones included) per primary key
+	private final ArrayDeque<SearchNode> overflow;
+	private int minPrimary;
+	private int size;
+
+	public BucketFrontier(ToDoubleFunction<SearchNode> primary, ToDoubleFunction<SearchNode> secondary) {
+		super();
+		this.primary = primary;
+		this.secondary = secondary;
+		this.buckets = new ArrayList<ArrayList<ArrayDeque<SearchNode>>>();
+		this.counts = new int[64];
+		this.overflow = new ArrayDeque<SearchNode>();
+		this.minPrimary = 0;
+		this.size = 0;
+	}
+
+	private static int key(double value) {
+		return value >= MAX_KEY ? MAX_KEY : (int) value;
+	}
+
+	public boolean enqueue(SearchNode n) {
+		SearchNode oldNode = this.stateToNodeIndex.get(n.getState());
+		if (oldNode != null && oldNode.gValue() <= n.gValue()) return false; // no need to enqueue (a better node referring to the same state is already in the frontier)
+		if (oldNode == null) size++;
+		push(n);
+		super.notifyEnqueue(n);
+		return true;
+	}
+
+	private void push(SearchNode n) {
+		int p = key(primary.applyAsDouble(n));
+		if (p == MAX_KEY) {
+			overflow.addLast(n);
+			return;
+		}
+		while (buckets.size() <= p) {
+			buckets.add(new ArrayList<ArrayDeque<SearchNode>>());
+		}
+		if (counts.length <= p) {
+			counts = Arrays.copyOf(counts, Math.max(p + 1, counts.length * 2));
+		}
+		ArrayList<ArrayDeque<SearchNode>> bucket = buckets.get(p);
+		int s = Math.min(key(secondary.applyAsDouble(n)), MAX_KEY - 1);
+		while (bucket.size() <= s) {
+			bucket.add(new ArrayDeque<SearchNode>());
+		}
+		bucket.get(s).addLast(n);
+		counts[p]++;
+		if (p < minPrimary) minPrimary = p;
+	}
+
+	private SearchNode pop() {
+		while (minPrimary < buckets.size() && counts[minPrimary] == 0) {
+			minPrimary++;
+		}
+		if (minPrimary == buckets.size()) {
+			return overflow.removeFirst();
+		}
+		counts[minPrimary]--;
+		for (ArrayDeque<SearchNode> bucket : buckets.get(minPrimary)) {
+			if (!bucket.isEmpty()) return bucket.removeFirst();
+		}
+		throw new IllegalStateException("Bucket count out of sync");
+	}
+
+	public SearchNode dequeue() {
+		if (size == 0) throw new NoSuchElementException();
+		SearchNode result = pop();
+		while (stateToNodeIndex.get(result.getState()) != result) { // superseded by a cheaper node
+			result = pop();
+		}
+		size--;
+		super.notifyDequeue(result);
+		return result;
+	}
+
+	protected void remove(SearchNode n) {
+		if (stateToNodeIndex.get(n.getState()) == n) {
+			stateToNodeIndex.remove(n.getState());
+			size--;
+		}
+	}
+
+	public Iterator<SearchNode> iterator() {
+		return Collections.unmodifiableCollection(stateToNodeIndex.values()).iterator();
+	}
+	public int size() {
+		return size;
+	}
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	public void clear() {
+		buckets.clear();
+		Arrays.fill(counts, 0);
+		overflow.clear();
+		minPrimary = 0;
+		size = 0;
+		stateToNodeIndex.clear();
+	}
+
+}
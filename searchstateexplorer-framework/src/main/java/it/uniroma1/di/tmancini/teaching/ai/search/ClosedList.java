@@ -0,0 +1,13 @@
+package it.uniroma1.di.tmancini.teaching.ai.search;
+
+public abstract class ClosedList {
+
+	public abstract void add(State s);
+
+	public abstract boolean contains(State s);
+
+	public abstract int size();
+
+	public abstract void clear();
+
+}
@@ -0,0 +1,139 @@
+package it.uniroma1.di.tmancini.teaching.ai.search;
+
+import java.util.*;
+
+// A* on compact nodes: the search tree is a NodeStore, the open list a
+// NodeHeap of node ids, and the closed list a bitset over state ids, so no
+// SearchNode is ever allocated. States are interned by their packed words in
+// a StateRegistry: a child is generated as words (State.resultingWords), costs
+// one registry probe, and becomes a State object only if it is new (for its
+// h) or when it is expanded. Actions are numbered on first sight; the plan is
+// rebuilt from the action ids on the path to the goal.
+// The state being expanded is rebuilt over a single buffer, reused from one
+// expansion to the next, so it must not outlive its expansion. Being rebuilt
+// from bare words, it cannot derive what it caches from its parent's, as
+// states built by resultingState may (e.g. their applicable actions), so
+// successors are generated from scratch: keeping that data for every open
+// node would take more memory than the node itself.
+// Expansion follows SearchStateExplorer.run: goals are tested when popped
+// and closed states are never reopened. Without a heuristic this is a
+// min-cost search. Problems must support packedWords and stateFromWords.
+public class CompactAstarExplorer extends SearchStateExplorer {
+
+	private NodeStore nodes;
+	private StateRegistry states;
+	private float[] hOfState;
+	private List<Action> actions;
+	private Map<Action, Integer> actionIds;
+
+	public CompactAstarExplorer(Problem p, Integer maxDepth, String outFileName) {
+		super(p, maxDepth, outFileName);
+		super.setFrontier( new MinFcostFrontier() ); // not used: the open list is a NodeHeap
+	}
+	public CompactAstarExplorer(Problem p, Integer maxDepth) {
+		this(p, maxDepth, null);
+	}
+	public CompactAstarExplorer(Problem p) {
+		this(p, null, null);
+	}
+
+	public String toString() {
+		return "A* search (compact nodes)";
+	}
+
+	public List<Action> run(State initialState, boolean findBestSolution) {
+		isRunning = true;
+		nbIter = 0;
+		maxFrontierSize = 0;
+		long[] initialWords = initialState.packedWords();
+		if (initialWords == null) {
+			throw new RuntimeException("States of this problem cannot be packed: use AstarExplorer");
+		}
+		Problem problem = getProblem();
+		nodes = new NodeStore();
+		states = new StateRegistry(initialWords.length);
+		hOfState = new float[1 << 12];
+		actions = new ArrayList<Action>();
+		actionIds = new IdentityHashMap<Action, Integer>();
+		NodeHeap open = new NodeHeap(nodes);
+		BitSet closed = new BitSet();
+
+		long[] words = new long[initialWords.length];
+		long[] expandedWords = new long[initialWords.length];
+		open.offer(nodes.add(NodeStore.NONE, NodeStore.NONE, idOf(initialWords, initialState), 0, 0, hOfState[0]));
+		int result = NodeStore.NONE;
+		while (!open.isEmpty()) {
+			nbIter++;
+			if (maxFrontierSize < open.size()) {
+				maxFrontierSize = open.size();
+			}
+			if (verbosity.ordinal() >= VERBOSITY.statsonly.ordinal() && nbIter % 100 == 0) {
+				outputStats();
+			}
+
+			int node = open.poll();
+			states.copyWords(nodes.state(node), expandedWords);
+			State s = problem.stateFromWords(expandedWords);
+			if (s.isGoal()) {
+				if (result == NodeStore.NONE || nodes.gValue(result) > nodes.gValue(node)) {
+					result = node;
+					if (!findBestSolution) break;
+				}
+				continue;
+			}
+			closed.set(nodes.state(node));
+			if (getMaxDepth() != null && nodes.depth(node) >= getMaxDepth()) continue;
+
+			Iterator<? extends Action> successors = s.successorActions();
+			while (successors.hasNext()) {
+				Action a = successors.next();
+				s.resultingWords(a, words);
+				int childId = idOf(words, null);
+				if (closed.get(childId)) continue;
+				double g = nodes.gValue(node) + a.getCost();
+				if (open.openG(childId) <= g) continue;
+				open.offer(nodes.add(node, idOf(a), childId, nodes.depth(node) + 1, g, hOfState[childId]));
+			}
+		}
+
+		List<Action> plan = null;
+		if (result != NodeStore.NONE) {
+			plan = new LinkedList<Action>();
+			for (int id : nodes.actionsTo(result)) {
+				plan.add(actions.get(id));
+			}
+		}
+		nodes = null;
+		states = null;
+		hOfState = null;
+		isRunning = false;
+		return plan;
+	}
+
+	// Id of the state with the given words, registering it and recording its h
+	// if it is new; s is the state itself, or null to build it from the words.
+	private int idOf(long[] words, State s) {
+		int id = states.lookupOrInsert(words);
+		if (states.lastInserted()) {
+			if (s == null) {
+				s = getProblem().stateFromWords(words.clone());
+			}
+			if (id == hOfState.length) {
+				hOfState = Arrays.copyOf(hOfState, id * 2);
+			}
+			hOfState[id] = (float) SearchNode.heuristicOf(s);
+		}
+		return id;
+	}
+
+	private int idOf(Action a) {
+		Integer id = actionIds.get(a);
+		if (id == null) {
+			id = actions.size();
+			actions.add(a);
+			actionIds.put(a, id);
+		}
+		return id;
+	}
+
+} //:~
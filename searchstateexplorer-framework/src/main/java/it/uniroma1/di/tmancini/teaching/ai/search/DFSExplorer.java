@@ -16,5 +16,10 @@ public class DFSExplorer extends SearchStateExplorer {
 	public String toString() {
 		return "Depth first search";
 	}
+
+	// The first goal found is as good as any: no need to generate its siblings.
+	protected boolean testsGoalOnGeneration() {
+		return true;
+	}
 	
 } //:~
\ No newline at end of file
@@ -0,0 +1,394 @@
+package it.uniroma1.di.tmancini.teaching.ai.search;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+// External-memory breadth first search with delayed duplicate detection. The
+// states of a layer live on disk, as their packed words (State.packedWords),
+// split by hash into partitions. A layer is expanded by streaming its files
+// and appending every child, duplicates included, to the raw file of the
+// partition it hashes to. Each raw partition is then sorted in memory, its
+// duplicates removed, and the states already in a previous layer subtracted
+// by a streaming merge against that layer's sorted file of the same
+// partition. Only one partition is in memory at a time, so more partitions
+// handle bigger layers.
+//
+// Layer files are read and written through memory-mapped windows. No parent
+// pointers are stored: the plan is rebuilt from the goal by scanning each
+// previous layer for a state with the current one as a child. States are
+// rebuilt from their words by Problem.stateFromWords.
+public class ExternalBFSExplorer extends SearchStateExplorer {
+
+	private static final int BUFFER_RECORDS = 1 << 14; // per raw partition
+	private static final long WINDOW_BYTES = 1L << 26;
+
+	private final File scratchDir; // null for the system temporary directory
+	private final int nbPartitions;
+
+	private File dir;
+	private int width;
+
+	public ExternalBFSExplorer(Problem p, File scratchDir, int nbPartitions, Integer maxDepth, String outFileName) {
+		super(p, maxDepth, outFileName);
+		if (nbPartitions <= 0) {
+			throw new RuntimeException("nbPartitions must be > 0");
+		}
+		this.scratchDir = scratchDir;
+		this.nbPartitions = nbPartitions;
+		super.setFrontier( new FIFOFrontier() ); // not used: layers are kept on disk
+	}
+	public ExternalBFSExplorer(Problem p, File scratchDir, int nbPartitions) {
+		this(p, scratchDir, nbPartitions, null, null);
+	}
+	public ExternalBFSExplorer(Problem p) {
+		this(p, null, 64, null, null);
+	}
+
+	public String toString() {
+		return "External breadth first search (" + nbPartitions + " partitions)";
+	}
+
+	public List<Action> run(State initialState, boolean findBestSolution) {
+		isRunning = true;
+		nbIter = 0;
+		maxFrontierSize = 0;
+		if (initialState.isGoal()) {
+			isRunning = false;
+			return new LinkedList<Action>();
+		}
+		long[] root = initialState.packedWords();
+		if (root == null) {
+			throw new RuntimeException("External BFS needs states with packed words");
+		}
+		width = root.length;
+
+		try {
+			dir = scratchDir == null
+					? Files.createTempDirectory("ebfs").toFile()
+					: Files.createTempDirectory(scratchDir.toPath(), "ebfs").toFile();
+			writeRecords(layerFile(0, partitionOf(root, 0)), root.clone(), 1);
+
+			long layerSize = 1;
+			int depth = 0;
+			long[] goal = null;
+			while (layerSize > 0 && (getMaxDepth() == null || depth < getMaxDepth())) {
+				nbIter += (int) layerSize;
+				if (maxFrontierSize < layerSize) {
+					maxFrontierSize = (int) Math.min(layerSize, Integer.MAX_VALUE);
+				}
+				if (verbosity.ordinal() >= VERBOSITY.statsonly.ordinal()) {
+					outputStats();
+				}
+				goal = expand(depth);
+				if (goal != null) break;
+				depth++;
+				layerSize = removeDuplicates(depth);
+			}
+			return goal == null ? null : planTo(goal, depth);
+		} catch (IOException e) {
+			throw new RuntimeException("External BFS failed in " + dir, e);
+		} finally {
+			deleteScratch();
+			isRunning = false;
+		}
+	}
+
+	private File layerFile(int depth, int partition) {
+		return new File(dir, "layer-" + depth + "-" + partition);
+	}
+
+	private File rawFile(int depth, int partition) {
+		return new File(dir, "raw-" + depth + "-" + partition);
+	}
+
+	private int partitionOf(long[] words, int from) {
+		long h = 0;
+		for (int i = from; i < from + width; i++) {
+			h = (h ^ words[i]) * 0x9E3779B97F4A7C15L;
+		}
+		return (int) ((h >>> 33) % nbPartitions);
+	}
+
+	// Appends the children of layer depth to the raw partitions of the next
+	// one; returns the words of a goal child, if any.
+	private long[] expand(int depth) throws IOException {
+		RecordWriter[] writers = new RecordWriter[nbPartitions];
+		try {
+			for (int k = 0; k < nbPartitions; k++) {
+				writers[k] = new RecordWriter(rawFile(depth + 1, k));
+			}
+			for (int k = 0; k < nbPartitions; k++) {
+				try (RecordReader in = new RecordReader(layerFile(depth, k))) {
+					long[] words = new long[width];
+					while (in.next(words)) {
+						State s = getProblem().stateFromWords(words.clone());
+						for (Action a : s.executableActions()) {
+							State child = s.resultingState(a);
+							long[] childWords = child.packedWords();
+							if (child.isGoal()) return childWords;
+							writers[partitionOf(childWords, 0)].write(childWords);
+						}
+					}
+				}
+			}
+			return null;
+		} finally {
+			for (RecordWriter w : writers) {
+				if (w != null) w.close();
+			}
+		}
+	}
+
+	// Turns the raw partitions of the layer into sorted files of new states,
+	// and returns how many there are.
+	private long removeDuplicates(int depth) throws IOException {
+		long layerSize = 0;
+		for (int k = 0; k < nbPartitions; k++) {
+			File raw = rawFile(depth, k);
+			long[] records = readRecords(raw);
+			int n = records.length / width;
+			sort(records, 0, n - 1);
+			n = unique(records, n);
+			for (int previous = depth - 1; previous >= 0 && n > 0; previous--) {
+				n = subtract(records, n, layerFile(previous, k));
+			}
+			writeRecords(layerFile(depth, k), records, n);
+			Files.delete(raw.toPath());
+			layerSize += n;
+		}
+		return layerSize;
+	}
+
+	private long[] readRecords(File f) throws IOException {
+		long count = f.length() / 8;
+		if (count > Integer.MAX_VALUE - 8) {
+			throw new RuntimeException("Partition " + f + " does not fit in memory, use more partitions");
+		}
+		long[] records = new long[(int) count];
+		long[] words = new long[width];
+		try (RecordReader in = new RecordReader(f)) {
+			for (int i = 0; in.next(words); i += width) {
+				System.arraycopy(words, 0, records, i, width);
+			}
+		}
+		return records;
+	}
+
+	private void writeRecords(File f, long[] records, int n) throws IOException {
+		long recordBytes = 8L * width;
+		long window = Math.max(1, WINDOW_BYTES / recordBytes) * recordBytes;
+		long size = n * recordBytes;
+		try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (long pos = 0; pos < size; pos += window) {
+				long len = Math.min(window, size - pos);
+				MappedByteBuffer out = ch.map(FileChannel.MapMode.READ_WRITE, pos, len);
+				out.asLongBuffer().put(records, (int) (pos / 8), (int) (len / 8));
+				out.force();
+			}
+		}
+	}
+
+	// Keeps the first n sorted records that are not in the sorted file;
+	// returns how many are left.
+	private int subtract(long[] records, int n, File f) throws IOException {
+		long[] words = new long[width];
+		int kept = 0;
+		try (RecordReader in = new RecordReader(f)) {
+			boolean more = in.next(words);
+			for (int i = 0; i < n; i++) {
+				int c = -1;
+				while (more && (c = compare(records, i * width, words, 0)) > 0) {
+					more = in.next(words);
+				}
+				if (more && c == 0) continue;
+				if (kept != i) {
+					System.arraycopy(records, i * width, records, kept * width, width);
+				}
+				kept++;
+			}
+		}
+		return kept;
+	}
+
+	private int unique(long[] records, int n) {
+		if (n == 0) return 0;
+		int kept = 1;
+		for (int i = 1; i < n; i++) {
+			if (compare(records, i * width, records, (kept - 1) * width) == 0) continue;
+			if (kept != i) {
+				System.arraycopy(records, i * width, records, kept * width, width);
+			}
+			kept++;
+		}
+		return kept;
+	}
+
+	private int compare(long[] a, int i, long[] b, int j) {
+		for (int w = 0; w < width; w++) {
+			int c = Long.compare(a[i + w], b[j + w]);
+			if (c != 0) return c;
+		}
+		return 0;
+	}
+
+	// Quicksort of the records lo..hi (inclusive), width words each. Raw
+	// partitions hold every copy of a state generated in the layer, so the
+	// partition is three-way: the records equal to the pivot are settled at
+	// once instead of being split again and again.
+	private void sort(long[] records, int lo, int hi) {
+		sort(records, lo, hi, new long[width]);
+	}
+
+	private void sort(long[] records, int lo, int hi, long[] pivot) {
+		while (hi - lo > 16) {
+			System.arraycopy(records, ((lo + hi) >>> 1) * width, pivot, 0, width);
+			int lt = lo; // records lo..lt-1 are smaller than the pivot
+			int gt = hi; // records gt+1..hi are greater
+			int i = lo;
+			while (i <= gt) {
+				int c = compare(records, i * width, pivot, 0);
+				if (c < 0) {
+					swap(records, i++, lt++);
+				} else if (c > 0) {
+					swap(records, i, gt--);
+				} else {
+					i++;
+				}
+			}
+			if (lt - lo < hi - gt) {
+				sort(records, lo, lt - 1, pivot);
+				lo = gt + 1;
+			} else {
+				sort(records, gt + 1, hi, pivot);
+				hi = lt - 1;
+			}
+		}
+		for (int i = lo + 1; i <= hi; i++) {
+			for (int j = i; j > lo && compare(records, (j - 1) * width, records, j * width) > 0; j--) {
+				swap(records, j - 1, j);
+			}
+		}
+	}
+
+	private void swap(long[] records, int i, int j) {
+		for (int w = 0; w < width; w++) {
+			long t = records[i * width + w];
+			records[i * width + w] = records[j * width + w];
+			records[j * width + w] = t;
+		}
+	}
+
+	// Walks back from the goal, a child of layer depth, finding in every layer
+	// a state one of whose actions leads to the state found after it.
+	private List<Action> planTo(long[] goal, int depth) throws IOException {
+		LinkedList<Action> actions = new LinkedList<Action>();
+		long[] target = goal;
+		for (int d = depth; d >= 0; d--) {
+			long[] parent = null;
+			for (int k = 0; k < nbPartitions && parent == null; k++) {
+				try (RecordReader in = new RecordReader(layerFile(d, k))) {
+					long[] words = new long[width];
+					while (parent == null && in.next(words)) {
+						State s = getProblem().stateFromWords(words.clone());
+						for (Action a : s.executableActions()) {
+							if (Arrays.equals(s.resultingState(a).packedWords(), target)) {
+								actions.addFirst(a);
+								parent = words.clone();
+								break;
+							}
+						}
+					}
+				}
+			}
+			target = parent;
+		}
+		return actions;
+	}
+
+	private void deleteScratch() {
+		if (dir == null) return;
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				f.delete();
+			}
+		}
+		dir.delete();
+		dir = null;
+	}
+
+	// Sequential reader of a file of records through memory-mapped windows; a
+	// missing file reads as empty.
+	private class RecordReader implements Closeable {
+
+		private final FileChannel ch;
+		private final long size;
+		private final long window;
+		private long pos = 0;
+		private LongBuffer in;
+
+		RecordReader(File f) throws IOException {
+			this.ch = f.exists() ? FileChannel.open(f.toPath(), StandardOpenOption.READ) : null;
+			this.size = ch == null ? 0 : ch.size();
+			long recordBytes = 8L * width;
+			this.window = Math.max(1, WINDOW_BYTES / recordBytes) * recordBytes;
+		}
+
+		boolean next(long[] words) throws IOException {
+			if (in == null || !in.hasRemaining()) {
+				if (pos >= size) return false;
+				long len = Math.min(window, size - pos);
+				in = ch.map(FileChannel.MapMode.READ_ONLY, pos, len).asLongBuffer();
+				pos += len;
+			}
+			in.get(words);
+			return true;
+		}
+
+		public void close() throws IOException {
+			if (ch != null) ch.close();
+		}
+	}
+
+	// Buffered appender of records to a raw partition file.
+	private class RecordWriter implements Closeable {
+
+		private final FileChannel ch;
+		private final ByteBuffer buffer;
+
+		RecordWriter(File f) throws IOException {
+			this.ch = FileChannel.open(f.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			this.buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * 8 * width);
+		}
+
+		void write(long[] words) throws IOException {
+			if (buffer.remaining() < 8 * width) {
+				flush();
+			}
+			for (long w : words) {
+				buffer.putLong(w);
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				ch.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		public void close() throws IOException {
+			flush();
+			ch.close();
+		}
+	}
+
+} //:~
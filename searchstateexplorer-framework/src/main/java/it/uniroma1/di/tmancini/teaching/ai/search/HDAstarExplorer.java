@@ -0,0 +1,216 @@
+package it.uniroma1.di.tmancini.teaching.ai.search;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Hash-distributed parallel A* (HDA*). Every state is owned by one worker,
+// chosen by its fingerprint; each worker runs A* on its own open list and
+// closed table, and sends the children it does not own to their owner
+// through a lock-free queue.
+//
+// A goal popped by any worker becomes the incumbent if it is cheaper than the
+// current one; from then on nodes with f >= incumbent are pruned. The search
+// ends when every worker is out of useful work and no node is in flight,
+// detected with an in-flight counter and an activity epoch: a worker leaving
+// idleness clears its idle flag, then bumps the epoch, and only then takes
+// messages (decrementing the counter). A check reads the epoch, the idle
+// flags, the counter and the epoch again, so if a worker it saw idle took a
+// message before the counter was read, the second epoch read sees the bump;
+// all workers idle, nothing in flight and an unchanged epoch thus mean that
+// no work is left. With an admissible heuristic the incumbent is then optimal
+// (states are reopened when reached with a lower g, so consistency is not
+// required).
+public class HDAstarExplorer extends SearchStateExplorer {
+
+	private final int nbThreads;
+
+	private Worker[] workers;
+	private final AtomicLong inFlight = new AtomicLong();
+	private final AtomicLong epoch = new AtomicLong();
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+	private volatile boolean done;
+	private volatile SearchNode incumbent;
+	private volatile double incumbentCost;
+
+	public HDAstarExplorer(Problem p, int nbThreads, Integer maxDepth, String outFileName) {
+		super(p, maxDepth, outFileName);
+		if (nbThreads <= 0) {
+			throw new RuntimeException("nbThreads must be > 0");
+		}
+		this.nbThreads = nbThreads;
+		super.setFrontier( new MinFcostFrontier() ); // not used: every worker has its own
+	}
+	public HDAstarExplorer(Problem p, int nbThreads) {
+		this(p, nbThreads, null, null);
+	}
+	public HDAstarExplorer(Problem p) {
+		this(p, Runtime.getRuntime().availableProcessors(), null, null);
+	}
+
+	public String toString() {
+		return "Hash-distributed A* search (" + nbThreads + " threads)";
+	}
+
+	// The best solution is always searched for: the first goal found by a
+	// worker need not be optimal.
+	public List<Action> run(State initialState, boolean findBestSolution) {
+		isRunning = true;
+		done = false;
+		incumbent = null;
+		incumbentCost = Double.POSITIVE_INFINITY;
+		inFlight.set(0);
+		failure.set(null);
+
+		workers = new Worker[nbThreads];
+		for (int i = 0; i < nbThreads; i++) {
+			workers[i] = new Worker();
+		}
+		SearchNode root = new SearchNode(initialState);
+		inFlight.incrementAndGet();
+		workers[ownerOf(initialState)].inbox.add(root);
+
+		Thread[] threads = new Thread[nbThreads];
+		for (int i = 0; i < nbThreads; i++) {
+			threads[i] = new Thread(workers[i], "hda*-worker-" + i);
+			threads[i].start();
+		}
+		for (Thread t : threads) {
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				done = true;
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		nbIter = 0;
+		maxFrontierSize = 0;
+		for (Worker w : workers) {
+			nbIter += w.expanded;
+			maxFrontierSize += w.maxOpenSize;
+		}
+		isRunning = false;
+
+		if (failure.get() != null) {
+			throw new RuntimeException("HDA* worker failed", failure.get());
+		}
+		return incumbent == null ? null : planTo(incumbent);
+	}
+
+	private int ownerOf(State s) {
+		long h = s.fingerprint() * 0x9E3779B97F4A7C15L;
+		return (int) ((h >>> 33) % nbThreads);
+	}
+
+	private synchronized void offerSolution(SearchNode goal) {
+		if (goal.gValue() < incumbentCost) {
+			incumbent = goal;
+			incumbentCost = goal.gValue();
+		}
+	}
+
+	private boolean checkTermination() {
+		long before = epoch.get();
+		for (Worker w : workers) {
+			if (!w.idle) return false;
+		}
+		if (inFlight.get() != 0) return false;
+		return epoch.get() == before;
+	}
+
+	private class Worker implements Runnable {
+
+		final ConcurrentLinkedQueue<SearchNode> inbox = new ConcurrentLinkedQueue<SearchNode>();
+		final Frontier open = getProblem().hasIntegerCosts()
+				? new BucketFrontier(SearchNode::fValue, SearchNode::hValue)
+				: new MinFcostFrontier();
+		final Map<State, Double> bestG = new HashMap<State, Double>(); // open and closed states owned by this worker
+		volatile boolean idle = false;
+		int expanded = 0;
+		int maxOpenSize = 0;
+
+		public void run() {
+			try {
+				search();
+			} catch (Throwable t) {
+				failure.compareAndSet(null, t);
+				done = true;
+			}
+		}
+
+		private void search() {
+			while (!done) {
+				SearchNode n;
+				while ((n = inbox.poll()) != null) {
+					receive(n);
+					inFlight.decrementAndGet();
+				}
+
+				if (!open.isEmpty()) {
+					SearchNode node = open.dequeue();
+					if (node.fValue() >= incumbentCost) {
+						open.clear(); // sorted by f: nothing left can improve the incumbent
+						continue;
+					}
+					expand(node);
+					continue;
+				}
+
+				idle = true;
+				int spins = 0;
+				while (!done) {
+					if (!inbox.isEmpty()) {
+						idle = false; // before the epoch: see checkTermination
+						epoch.incrementAndGet();
+						break;
+					}
+					if (checkTermination()) {
+						done = true;
+						break;
+					}
+					if (++spins < 64) {
+						Thread.yield();
+					} else {
+						LockSupport.parkNanos(50000);
+					}
+				}
+			}
+		}
+
+		private void receive(SearchNode n) {
+			Double g = bestG.get(n.getState());
+			if (g != null && g <= n.gValue()) return;
+			if (n.fValue() >= incumbentCost) return;
+			bestG.put(n.getState(), n.gValue());
+			open.enqueue(n);
+			if (maxOpenSize < open.size()) {
+				maxOpenSize = open.size();
+			}
+		}
+
+		private void expand(SearchNode node) {
+			expanded++;
+			State s = node.getState();
+			if (s.isGoal()) {
+				offerSolution(node);
+				return;
+			}
+			if (getMaxDepth() != null && node.getDepth() >= getMaxDepth()) return;
+			for (Action a : s.executableActions()) {
+				SearchNode child = new SearchNode(node, a);
+				if (child.fValue() >= incumbentCost) continue;
+				Worker owner = workers[ownerOf(child.getState())];
+				if (owner == this) {
+					receive(child);
+				} else {
+					inFlight.incrementAndGet();
+					owner.inbox.add(child);
+				}
+			}
+		}
+	}
+
+} //:~
@@ -0,0 +1,21 @@
+package it.uniroma1.di.tmancini.teaching.ai.search;
+import java.util.*;
+
+public class HashSetClosedList extends ClosedList {
+
+	private Set<State> states = new HashSet<State>();
+
+	public void add(State s) {
+		states.add(s);
+	}
+	public boolean contains(State s) {
+		return states.contains(s);
+	}
+	public int size() {
+		return states.size();
+	}
+	public void clear() {
+		states.clear();
+	}
+
+}
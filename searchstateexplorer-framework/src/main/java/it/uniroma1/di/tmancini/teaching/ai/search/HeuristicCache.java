@@ -0,0 +1,141 @@
+package it.uniroma1.di.tmancini.teaching.ai.search;
+
+import java.util.*;
+
+// Bounded memo of heuristic values keyed by State.fingerprint, for heuristics
+// that cost much more than a hash probe. Problems hand it out through
+// Problem.heuristicCache, and SearchNode consults it before State.hValue, so
+// a state reached again (in the same run, in a later run in the same JVM, or
+// by another thread) is not evaluated twice as long as it is still cached.
+//
+// Entries live in fixed slots, found through an open-addressing index with
+// linear probing. When all slots are taken, a CLOCK hand picks the victim:
+// it clears the reference bit of the slots it passes, which are set on every
+// hit, and stops at the first slot not used since its last visit. Two states
+// with the same 64-bit fingerprint share their value.
+public class HeuristicCache {
+
+	private static final int BYTES_PER_ENTRY = 8 + 8 + 1 + 3 * 4; // key, value, reference bit, 2 to 4 index slots
+
+	private final long[] keys;
+	private final double[] values;
+	private final boolean[] referenced;
+	private final int[] index; // slot + 1, 0 if empty
+	private final int mask;
+	private int size;
+	private int hand;
+
+	private long hits;
+	private long misses;
+
+	public HeuristicCache(long maxBytes) {
+		int capacity = (int) Math.max(1, Math.min(1 << 28, maxBytes / BYTES_PER_ENTRY));
+		this.keys = new long[capacity];
+		this.values = new double[capacity];
+		this.referenced = new boolean[capacity];
+		this.index = new int[Integer.highestOneBit(capacity) * 4];
+		this.mask = index.length - 1;
+		this.size = 0;
+		this.hand = 0;
+	}
+
+	// The heuristic value of the state, computed by State.hValue on a miss.
+	public double hValue(State s) {
+		long key = s.fingerprint();
+		synchronized (this) {
+			int i = find(key);
+			if (index[i] != 0) {
+				hits++;
+				referenced[index[i] - 1] = true;
+				return values[index[i] - 1];
+			}
+			misses++;
+		}
+		double h = s.hValue();
+		put(key, h);
+		return h;
+	}
+
+	private int home(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h >>> 32) & mask;
+	}
+
+	// Index position of the key, or of the empty position ending its run.
+	private int find(long key) {
+		int i = home(key);
+		while (index[i] != 0 && keys[index[i] - 1] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	private synchronized void put(long key, double h) {
+		int i = find(key);
+		if (index[i] != 0) {
+			values[index[i] - 1] = h; // computed meanwhile by another thread
+			return;
+		}
+		int slot;
+		if (size < keys.length) {
+			slot = size++;
+		} else {
+			while (referenced[hand]) {
+				referenced[hand] = false;
+				hand = (hand + 1) % keys.length;
+			}
+			slot = hand;
+			hand = (hand + 1) % keys.length;
+			remove(slot);
+			i = find(key);
+		}
+		keys[slot] = key;
+		values[slot] = h;
+		referenced[slot] = false;
+		index[i] = slot + 1;
+	}
+
+	// Drops the slot from the index, moving back the entries of its run that
+	// could no longer be found.
+	private void remove(int slot) {
+		int i = find(keys[slot]);
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (index[j] == 0) break;
+			int k = home(keys[index[j] - 1]);
+			boolean stays = i <= j ? (i < k && k <= j) : (i < k || k <= j);
+			if (!stays) {
+				index[i] = index[j];
+				i = j;
+			}
+		}
+		index[i] = 0;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return keys.length;
+	}
+
+	public synchronized void clear() {
+		Arrays.fill(index, 0);
+		Arrays.fill(referenced, false);
+		size = 0;
+		hand = 0;
+		hits = 0;
+		misses = 0;
+	}
+
+}
@@ -0,0 +1,110 @@
+package it.uniroma1.di.tmancini.teaching.ai.search;
+
+import java.util.*;
+
+// Iterative-deepening A*: depth-first searches bounded by f = g + h, the bound
+// growing each iteration to the smallest f that exceeded it. Memory is linear
+// in the solution depth: only the current path is kept (and checked to avoid
+// cycles). An optional transposition table, bounded in entries and cleared at
+// each iteration, prunes states already reached in the iteration with a g no
+// larger, cutting re-expansions through transpositions.
+public class IDAstarExplorer extends SearchStateExplorer {
+
+	private int transpositionTableSize = 0;
+
+	private Set<State> onPath;
+	private Map<State, Double> transpositions;
+	private double nextBound;
+	private SearchNode result;
+
+	public IDAstarExplorer(Problem p, Integer maxDepth, String outFileName) {
+		super(p, maxDepth, outFileName);
+		super.setFrontier( new LIFOFrontier() ); // not used: the path is the recursion stack
+	}
+	public IDAstarExplorer(Problem p, Integer maxDepth) {
+		this(p, maxDepth, null);
+	}
+	public IDAstarExplorer(Problem p) {
+		this(p, null, null);
+	}
+
+	// Maximum number of states in the transposition table, 0 to disable it.
+	public void setTranspositionTableSize(int entries) {
+		if (entries < 0) {
+			throw new RuntimeException("transposition table size must be >= 0");
+		}
+		this.transpositionTableSize = entries;
+	}
+
+	public String toString() {
+		return "IDA* search";
+	}
+
+	public List<Action> run(State initialState, boolean findBestSolution) {
+		isRunning = true;
+		nbIter = 0;
+		maxFrontierSize = 0;
+		result = null;
+		onPath = new HashSet<State>();
+		transpositions = transpositionTableSize > 0 ? new HashMap<State, Double>() : null;
+
+		SearchNode root = new SearchNode(initialState);
+		double bound = root.fValue();
+		while (result == null && bound < Double.POSITIVE_INFINITY) {
+			if (verbosity.ordinal() >= VERBOSITY.statsonly.ordinal()) {
+				System.out.println("IDA* iteration with bound " + bound);
+				outputStats();
+			}
+			nextBound = Double.POSITIVE_INFINITY;
+			if (transpositions != null) {
+				transpositions.clear();
+			}
+			search(root, bound);
+			bound = nextBound;
+		}
+
+		onPath = null;
+		transpositions = null;
+		isRunning = false;
+		return result == null ? null : planTo(result);
+	}
+
+	// Returns true once a goal has been found.
+	private boolean search(SearchNode node, double bound) {
+		if (node.fValue() > bound) {
+			nextBound = Math.min(nextBound, node.fValue());
+			return false;
+		}
+		State s = node.getState();
+		if (s.isGoal()) {
+			result = node;
+			return true;
+		}
+		if (getMaxDepth() != null && node.getDepth() >= getMaxDepth()) return false;
+		if (transpositions != null) {
+			Double g = transpositions.get(s);
+			if (g != null && g <= node.gValue()) return false;
+			if (g != null || transpositions.size() < transpositionTableSize) {
+				transpositions.put(s, node.gValue());
+			}
+		}
+
+		nbIter++;
+		onPath.add(s);
+		if (maxFrontierSize < onPath.size()) {
+			maxFrontierSize = onPath.size();
+		}
+		boolean found = false;
+		for (Action a : s.executableActions()) {
+			SearchNode child = new SearchNode(node, a);
+			if (onPath.contains(child.getState())) continue;
+			if (search(child, bound)) {
+				found = true;
+				break;
+			}
+		}
+		onPath.remove(s);
+		return found;
+	}
+
+} //:~
@@ -0,0 +1,122 @@
+package it.uniroma1.di.tmancini.teaching.ai.search;
+import java.util.*;
+
+// Priority frontier backed by a d-ary heap in which every node knows its slot
+// (SearchNode.heapIndex). A cheaper node for a state already in the frontier
+// takes the old node's slot and is sifted from there, so improving g is an
+// O(log n) decrease-key instead of a linear removal.
+public class IndexedHeapFrontier extends Frontier {
+
+	private static final int ARITY = 4;
+
+	private SearchNode[] heap;
+	private int size;
+	private final Comparator<SearchNode> comparator;
+
+	public IndexedHeapFrontier(Comparator<SearchNode> comparator) {
+		super();
+		this.comparator = comparator;
+		this.heap = new SearchNode[1024];
+		this.size = 0;
+	}
+
+	public boolean enqueue(SearchNode n) {
+		SearchNode oldNode = this.stateToNodeIndex.get(n.getState());
+		if (oldNode != null) {
+			if (oldNode.gValue() <= n.gValue()) return false; // no need to enqueue (a better node referring to the same state is already in the frontier)
+			int slot = oldNode.heapIndex;
+			oldNode.heapIndex = -1;
+			place(n, slot);
+			siftUp(slot);
+			siftDown(n.heapIndex);
+		} else {
+			if (size == heap.length) {
+				heap = Arrays.copyOf(heap, size * 2);
+			}
+			place(n, size++);
+			siftUp(n.heapIndex);
+		}
+		super.notifyEnqueue(n);
+		return true;
+	}
+
+	public SearchNode dequeue() {
+		if (size == 0) throw new NoSuchElementException();
+		SearchNode result = heap[0];
+		removeAt(0);
+		super.notifyDequeue(result);
+		return result;
+	}
+
+	protected void remove(SearchNode n) {
+		if (n.heapIndex < 0) return;
+		removeAt(n.heapIndex);
+		stateToNodeIndex.remove(n.getState());
+	}
+
+	private void removeAt(int slot) {
+		SearchNode removed = heap[slot];
+		removed.heapIndex = -1;
+		size--;
+		if (slot != size) {
+			place(heap[size], slot);
+			heap[size] = null;
+			siftUp(slot);
+			siftDown(heap[slot].heapIndex);
+		} else {
+			heap[size] = null;
+		}
+	}
+
+	private void place(SearchNode n, int slot) {
+		heap[slot] = n;
+		n.heapIndex = slot;
+	}
+
+	private void siftUp(int slot) {
+		SearchNode n = heap[slot];
+		while (slot > 0) {
+			int parent = (slot - 1) / ARITY;
+			if (comparator.compare(n, heap[parent]) >= 0) break;
+			place(heap[parent], slot);
+			slot = parent;
+		}
+		place(n, slot);
+	}
+
+	private void siftDown(int slot) {
+		SearchNode n = heap[slot];
+		while (true) {
+			int first = slot * ARITY + 1;
+			if (first >= size) break;
+			int best = first;
+			int last = Math.min(first + ARITY, size);
+			for (int child = first + 1; child < last; child++) {
+				if (comparator.compare(heap[child], heap[best]) < 0) best = child;
+			}
+			if (comparator.compare(heap[best], n) >= 0) break;
+			place(heap[best], slot);
+			slot = best;
+		}
+		place(n, slot);
+	}
+
+	public Iterator<SearchNode> iterator() {
+		return Arrays.asList(heap).subList(0, size).iterator();
+	}
+	public int size() {
+		return size;
+	}
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			heap[i].heapIndex = -1;
+			heap[i] = null;
+		}
+		size = 0;
+		stateToNodeIndex.clear();
+	}
+
+}
@@ -4,7 +4,9 @@ public class MinCostExplorer extends SearchStateExplorer {
 
 	public MinCostExplorer(Problem p, Integer maxDepth, String outFileName) {	
 		super(p, maxDepth, outFileName);
-		super.setFrontier( new MinGcostFrontier() );
+		super.setFrontier( p.hasIntegerCosts()
+				? new BucketFrontier(SearchNode::gValue, n -> 0)
+				: new MinGcostFrontier() );
 	}
 	
 	public MinCostExplorer(Problem p, Integer maxDepth) {
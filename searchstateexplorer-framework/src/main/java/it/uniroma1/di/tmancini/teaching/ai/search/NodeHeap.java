@@ -0,0 +1,120 @@
+package it.uniroma1.di.tmancini.teaching.ai.search;
+
+import java.util.*;
+
+// Open list of node ids from a NodeStore, ordered by f and then h: the int
+// counterpart of an IndexedHeapFrontier over MinFcost. The heap is 4-ary and
+// indexed by state id, so a cheaper node for a state already open replaces
+// the old one in its slot.
+public class NodeHeap {
+
+	private static final int ARITY = 4;
+
+	private final NodeStore nodes;
+	private int[] heap;
+	private int[] slotOfState; // -1 if the state is not open
+	private int size;
+
+	public NodeHeap(NodeStore nodes) {
+		this.nodes = nodes;
+		this.heap = new int[1024];
+		this.slotOfState = new int[1024];
+		Arrays.fill(slotOfState, -1);
+		this.size = 0;
+	}
+
+	// g of the open node for the state, or infinity if the state is not open.
+	public double openG(int state) {
+		if (state >= slotOfState.length || slotOfState[state] < 0) return Double.POSITIVE_INFINITY;
+		return nodes.gValue(heap[slotOfState[state]]);
+	}
+
+	// Adds the node, or puts it in place of the open node for the same state
+	// if it is cheaper; returns false if it was not needed.
+	public boolean offer(int node) {
+		int state = nodes.state(node);
+		if (state >= slotOfState.length) {
+			int old = slotOfState.length;
+			slotOfState = Arrays.copyOf(slotOfState, Math.max(state + 1, old * 2));
+			Arrays.fill(slotOfState, old, slotOfState.length, -1);
+		}
+		int slot = slotOfState[state];
+		if (slot >= 0) {
+			if (nodes.gValue(heap[slot]) <= nodes.gValue(node)) return false;
+			place(node, slot);
+			siftUp(slot);
+			siftDown(slotOfState[state]);
+			return true;
+		}
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
+		}
+		place(node, size++);
+		siftUp(size - 1);
+		return true;
+	}
+
+	public int poll() {
+		if (size == 0) throw new NoSuchElementException();
+		int result = heap[0];
+		slotOfState[nodes.state(result)] = -1;
+		size--;
+		if (size > 0) {
+			place(heap[size], 0);
+			siftDown(0);
+		}
+		return result;
+	}
+
+	private boolean less(int a, int b) {
+		double fa = nodes.fValue(a);
+		double fb = nodes.fValue(b);
+		return fa < fb || (fa == fb && nodes.hValue(a) < nodes.hValue(b));
+	}
+
+	private void place(int node, int slot) {
+		heap[slot] = node;
+		slotOfState[nodes.state(node)] = slot;
+	}
+
+	private void siftUp(int slot) {
+		int node = heap[slot];
+		while (slot > 0) {
+			int parent = (slot - 1) / ARITY;
+			if (!less(node, heap[parent])) break;
+			place(heap[parent], slot);
+			slot = parent;
+		}
+		place(node, slot);
+	}
+
+	private void siftDown(int slot) {
+		int node = heap[slot];
+		while (true) {
+			int first = slot * ARITY + 1;
+			if (first >= size) break;
+			int best = first;
+			for (int c = first + 1; c < Math.min(first + ARITY, size); c++) {
+				if (less(heap[c], heap[best])) best = c;
+			}
+			if (!less(heap[best], node)) break;
+			place(heap[best], slot);
+			slot = best;
+		}
+		place(node, slot);
+	}
+
+	public int size() {
+		return size;
+	}
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			slotOfState[nodes.state(heap[i])] = -1;
+		}
+		size = 0;
+	}
+
+}
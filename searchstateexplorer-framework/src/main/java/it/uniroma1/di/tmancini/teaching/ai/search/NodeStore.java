@@ -0,0 +1,100 @@
+package it.uniroma1.di.tmancini.teaching.ai.search;
+
+import java.util.*;
+
+// Search nodes kept as rows of parallel primitive arrays and addressed by int
+// ids, instead of one SearchNode object each: a node costs 28 bytes (parent,
+// action, state and depth as ints, g as a double, h as a float) with no
+// object header and no references for the garbage collector to trace.
+// Actions and states are referred to by ids given by the explorer; the plan
+// to a node is found by walking the parent ids.
+public class NodeStore {
+
+	public static final int NONE = -1;
+
+	private int[] parent;
+	private int[] action;
+	private int[] state;
+	private int[] depth;
+	private double[] g;
+	private float[] h;
+	private int size;
+
+	public NodeStore() {
+		this(1 << 12);
+	}
+
+	public NodeStore(int capacity) {
+		parent = new int[capacity];
+		action = new int[capacity];
+		state = new int[capacity];
+		depth = new int[capacity];
+		g = new double[capacity];
+		h = new float[capacity];
+		size = 0;
+	}
+
+	// Adds a node and returns its id; parent and action are NONE for a root.
+	public int add(int parentId, int actionId, int stateId, int nodeDepth, double gValue, double hValue) {
+		if (size == parent.length) {
+			grow();
+		}
+		parent[size] = parentId;
+		action[size] = actionId;
+		state[size] = stateId;
+		depth[size] = nodeDepth;
+		g[size] = gValue;
+		h[size] = (float) hValue;
+		return size++;
+	}
+
+	private void grow() {
+		int capacity = parent.length * 2;
+		parent = Arrays.copyOf(parent, capacity);
+		action = Arrays.copyOf(action, capacity);
+		state = Arrays.copyOf(state, capacity);
+		depth = Arrays.copyOf(depth, capacity);
+		g = Arrays.copyOf(g, capacity);
+		h = Arrays.copyOf(h, capacity);
+	}
+
+	public int parent(int node) {
+		return parent[node];
+	}
+	public int action(int node) {
+		return action[node];
+	}
+	public int state(int node) {
+		return state[node];
+	}
+	public int depth(int node) {
+		return depth[node];
+	}
+	public double gValue(int node) {
+		return g[node];
+	}
+	public double hValue(int node) {
+		return h[node];
+	}
+	public double fValue(int node) {
+		return g[node] + h[node];
+	}
+
+	// Action ids from the root to the node.
+	public int[] actionsTo(int node) {
+		int[] result = new int[depth[node]];
+		for (int n = node; parent[n] != NONE; n = parent[n]) {
+			result[depth[n] - 1] = action[n];
+		}
+		return result;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+}
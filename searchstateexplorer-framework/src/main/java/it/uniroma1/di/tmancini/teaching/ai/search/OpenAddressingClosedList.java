@@ -0,0 +1,113 @@
+package it.uniroma1.di.tmancini.teaching.ai.search;
+
+import java.util.*;
+
+// Closed list backed by a flat open-addressing table (linear probing, doubled
+// when two thirds full). Slots hold the 64-bit fingerprint of the state and,
+// when states can be packed (State.packedWords), a copy of its words, so the
+// duplicate check compares primitives only and the State objects themselves
+// are not retained. States without packed words are stored by fingerprint
+// only (hash compaction: a fingerprint collision makes a new state look
+// explored).
+public class OpenAddressingClosedList extends ClosedList {
+
+	private static final int INITIAL_CAPACITY = 1 << 10;
+	private static final long EMPTY = 0L;
+
+	private long[] keys;
+	private long[] words; // slot i holds words [i * width, (i + 1) * width)
+	private int width = -1; // unknown until the first state is added
+	private int size;
+	private int mask;
+
+	public OpenAddressingClosedList() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		words = width > 0 ? new long[capacity * width] : null;
+		mask = capacity - 1;
+		size = 0;
+	}
+
+	private static long key(State s) {
+		long k = s.fingerprint();
+		return k == EMPTY ? 1L : k;
+	}
+
+	private int slotOf(long k) {
+		return (int) ((k ^ (k >>> 31)) * 0x9E3779B97F4A7C15L >>> 32) & mask;
+	}
+
+	private boolean wordsEqual(int slot, long[] w) {
+		int offset = slot * width;
+		for (int i = 0; i < width; i++) {
+			if (words[offset + i] != w[i]) return false;
+		}
+		return true;
+	}
+
+	// Returns the slot holding the state, or the free slot where it would go.
+	private int find(long k, long[] w) {
+		int slot = slotOf(k);
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == k && (words == null || wordsEqual(slot, w))) return slot;
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	public void add(State s) {
+		long[] w = s.packedWords();
+		if (width < 0) {
+			width = w == null ? 0 : w.length;
+			allocate(keys.length);
+		}
+		long k = key(s);
+		int slot = find(k, w);
+		if (keys[slot] != EMPTY) return;
+		insert(slot, k, w, 0);
+		if (3 * size > 2 * keys.length) {
+			grow();
+		}
+	}
+
+	private void insert(int slot, long k, long[] w, int from) {
+		keys[slot] = k;
+		if (words != null) {
+			System.arraycopy(w, from, words, slot * width, width);
+		}
+		size++;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		long[] oldWords = words;
+		allocate(oldKeys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] == EMPTY) continue;
+			int slot = slotOf(oldKeys[i]);
+			while (keys[slot] != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			insert(slot, oldKeys[i], oldWords, i * width);
+		}
+	}
+
+	public boolean contains(State s) {
+		if (size == 0) return false;
+		long[] w = words != null ? s.packedWords() : null;
+		return keys[find(key(s), w)] != EMPTY;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+}
@@ -0,0 +1,119 @@
+package it.uniroma1.di.tmancini.teaching.ai.search;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Layer-synchronous breadth first search: a whole depth layer is expanded at
+// once on a fork-join pool, and the next layer is deduplicated through a
+// concurrent visited set (a ConcurrentHashMap key set, which locks per bin).
+// Goals are looked for once the whole next layer has been built, before it
+// is expanded, so the search stops at the first layer containing a goal,
+// which is a shallowest one.
+public class ParallelBFSExplorer extends SearchStateExplorer {
+
+	private static final int SPLIT_THRESHOLD = 256;
+
+	private final int nbThreads;
+
+	public ParallelBFSExplorer(Problem p, int nbThreads, Integer maxDepth, String outFileName) {
+		super(p, maxDepth, outFileName);
+		if (nbThreads <= 0) {
+			throw new RuntimeException("nbThreads must be > 0");
+		}
+		this.nbThreads = nbThreads;
+		super.setFrontier( new FIFOFrontier() ); // not used: layers are kept as lists
+	}
+	public ParallelBFSExplorer(Problem p, int nbThreads) {
+		this(p, nbThreads, null, null);
+	}
+	public ParallelBFSExplorer(Problem p) {
+		this(p, Runtime.getRuntime().availableProcessors(), null, null);
+	}
+
+	public String toString() {
+		return "Parallel breadth first search (" + nbThreads + " threads)";
+	}
+
+	public List<Action> run(State initialState, boolean findBestSolution) {
+		isRunning = true;
+		nbIter = 0;
+		maxFrontierSize = 0;
+
+		Set<State> visited = ConcurrentHashMap.newKeySet();
+		SearchNode root = new SearchNode(initialState);
+		visited.add(initialState);
+		SearchNode result = initialState.isGoal() ? root : null;
+
+		ForkJoinPool pool = new ForkJoinPool(nbThreads);
+		try {
+			List<SearchNode> layer = Collections.singletonList(root);
+			int depth = 0;
+			while (result == null && !layer.isEmpty() && (getMaxDepth() == null || depth < getMaxDepth())) {
+				nbIter += layer.size();
+				if (maxFrontierSize < layer.size()) {
+					maxFrontierSize = layer.size();
+				}
+				if (verbosity.ordinal() >= VERBOSITY.statsonly.ordinal()) {
+					outputStats();
+				}
+
+				layer = pool.invoke(new ExpandTask(layer, 0, layer.size(), visited));
+				depth++;
+				for (SearchNode n : layer) {
+					if (n.getState().isGoal()) {
+						result = n;
+						break;
+					}
+				}
+			}
+		} finally {
+			pool.shutdown();
+			isRunning = false;
+		}
+
+		return result == null ? null : planTo(result);
+	}
+
+	private static class ExpandTask extends RecursiveTask<List<SearchNode>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<SearchNode> layer;
+		private final int from;
+		private final int to;
+		private final Set<State> visited;
+
+		ExpandTask(List<SearchNode> layer, int from, int to, Set<State> visited) {
+			this.layer = layer;
+			this.from = from;
+			this.to = to;
+			this.visited = visited;
+		}
+
+		protected List<SearchNode> compute() {
+			if (to - from > SPLIT_THRESHOLD) {
+				int mid = (from + to) >>> 1;
+				ExpandTask left = new ExpandTask(layer, from, mid, visited);
+				left.fork();
+				List<SearchNode> right = new ExpandTask(layer, mid, to, visited).compute();
+				List<SearchNode> result = left.join();
+				result.addAll(right);
+				return result;
+			}
+			List<SearchNode> next = new ArrayList<SearchNode>();
+			for (int i = from; i < to; i++) {
+				SearchNode node = layer.get(i);
+				for (Action a : node.getState().executableActions()) {
+					SearchNode child = new SearchNode(node, a);
+					if (visited.add(child.getState())) {
+						next.add(child);
+					}
+				}
+			}
+			return next;
+		}
+	}
+
+} //:~
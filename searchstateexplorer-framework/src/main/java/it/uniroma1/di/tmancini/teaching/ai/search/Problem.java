@@ -1,5 +1,7 @@
 package it.uniroma1.di.tmancini.teaching.ai.search;
 
+import java.util.Collection;
+
 public abstract class Problem {
 
 	private String name;
@@ -10,6 +12,42 @@ public abstract class Problem {
 		this.currentState = null;		
 	}
 	
+	// True if every action cost and every heuristic value is a small
+	// non-negative integer, which lets explorers use a BucketFrontier.
+	public boolean hasIntegerCosts() {
+		return false;
+	}
+
+	// Cache in front of State.hValue (see HeuristicCache), or null for
+	// heuristics cheaper to compute than to look up.
+	public HeuristicCache heuristicCache() {
+		return null;
+	}
+
+	// Inverse of State.packedWords, for explorers that keep states as their
+	// words only (ExternalBFSExplorer).
+	public State stateFromWords(long[] words) {
+		throw new UnsupportedOperationException("Needs to be implemented by non-abstract subclasses");
+	}
+
+	// Problems whose states are sets of fluents, numbered 0..nbFluents()-1, and
+	// whose actions list the fluents they require, delete and add (see Action)
+	// can describe themselves through the following, which lets explorers
+	// regress the goal (BidirectionalExplorer).
+	public int nbFluents() {
+		throw new UnsupportedOperationException("Needs to be implemented by non-abstract subclasses");
+	}
+	public Collection<? extends Action> groundActions() {
+		throw new UnsupportedOperationException("Needs to be implemented by non-abstract subclasses");
+	}
+	public int[] goalFluents() {
+		throw new UnsupportedOperationException("Needs to be implemented by non-abstract subclasses");
+	}
+	// False if no reachable state can make all the given fluents true at once.
+	public boolean isConsistent(int[] fluents) {
+		return true;
+	}
+
 	public void setCurrentState(State s) {
 		if (s.getProblem() != this) throw new RuntimeException("State refers to wrong problem");
 		this.currentState = s;
@@ -9,7 +9,10 @@ public class SearchNode {
 	
 	private int depth;
 	private double g;
-	private double h;
+	private double h = Double.NaN; // computed on first use, see hValue
+	private boolean hDeferred; // h is only the parent's h minus the action cost
+
+	int heapIndex = -1; // slot in an IndexedHeapFrontier, -1 if not in one
 	
 	public SearchNode getParent() {
 		return parent;
@@ -26,11 +29,37 @@ public class SearchNode {
 	public double gValue() {
 		return g;
 	}
+	// The heuristic value of the state, computed (or found in the problem's
+	// HeuristicCache) on the first call: children found to be duplicates are
+	// discarded before anyone asks.
 	public double hValue() {
+		if (Double.isNaN(h)) {
+			h = heuristicOf(state);
+		}
 		return h;
 	}
 	public double fValue() {
-		return g + h;
+		return g + hValue();
+	}
+
+	public boolean isHeuristicDeferred() {
+		return hDeferred;
+	}
+
+	// Replaces a deferred estimate by the heuristic value of the state; returns
+	// true if it is higher, i.e. the node was ordered too early.
+	public boolean evaluateHeuristic() {
+		if (!hDeferred) return false;
+		hDeferred = false;
+		double estimate = h;
+		h = heuristicOf(state);
+		return h > estimate;
+	}
+
+	// State.hValue, through the problem's HeuristicCache if it has one.
+	static double heuristicOf(State s) {
+		HeuristicCache cache = s.getProblem().heuristicCache();
+		return cache == null ? s.hValue() : cache.hValue(s);
 	}
 	
 	
@@ -40,7 +69,6 @@ public class SearchNode {
 		this.state = initialState;
 		this.depth = 0;
 		this.g = 0;
-		this.h = initialState.hValue();
 	}
 		
 	
@@ -50,7 +78,16 @@ public class SearchNode {
 		this.state = parent.getState().resultingState(a);
 		this.depth = parent.depth+1;
 		this.g = parent.g + a.getCost();
-		this.h = state.hValue();
+	}
+
+	// With deferHeuristic the node is ordered by max(0, h(parent) - cost(a)),
+	// a lower bound for consistent heuristics, until evaluateHeuristic.
+	public SearchNode(SearchNode parent, Action a, boolean deferHeuristic) {
+		this(parent, a);
+		if (deferHeuristic) {
+			this.h = Math.max(0, parent.hValue() - a.getCost());
+			this.hDeferred = true;
+		}
 	}
 
 	public String toString() {
@@ -68,7 +105,7 @@ public class SearchNode {
 				this.state.toStringWithPrefix(prefix) +
 				"\n" + prefix + " - depth: " + this.depth +
 				"\n" + prefix + " - gValue: " + this.g +
-				"\n" + prefix + " - hValue: " + this.h +
+				"\n" + prefix + " - hValue: " + hValue() +
 				"\n" + prefix + "end.\n";
 		return s;
 	}
@@ -13,7 +13,7 @@ public abstract class SearchStateExplorer {
 	private PrintWriter out = new PrintWriter(System.out);
 	private boolean DEBUG = false;
 
-	private Set<State> explored;
+	private ClosedList explored;
 	protected Frontier frontier;
 
 	protected int nbIter;
@@ -25,12 +25,33 @@ public abstract class SearchStateExplorer {
 
 	protected VERBOSITY verbosity = VERBOSITY.none;
 
-	private boolean isRunning = false;
+	protected boolean isRunning = false;
+
+	// Whether run orders children by their parent's h minus the action cost,
+	// computing their own h only when they are dequeued (and putting them back
+	// if it is higher), instead of when they are enqueued.
+	private boolean deferHeuristic = false;
+
+	public void setDeferredHeuristic(boolean deferHeuristic) {
+		this.deferHeuristic = deferHeuristic;
+	}
+
+	// Whether run tests children for the goal as soon as they are generated,
+	// stopping there when the first solution is enough. Explorers whose frontier
+	// order does not guarantee the first goal found is a cheapest one can skip
+	// the rest of the expansion this way.
+	protected boolean testsGoalOnGeneration() {
+		return false;
+	}
 
 	protected void setFrontier(Frontier f) {
 		this.frontier = f;
 	}
 
+	public void setClosedList(ClosedList c) {
+		this.explored = c;
+	}
+
 	public Integer getMaxDepth() {
 		return maxDepth;
 	}
@@ -45,7 +66,7 @@ public abstract class SearchStateExplorer {
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
-		this.explored = new HashSet<State>();
+		this.explored = new HashSetClosedList();
 		this.frontier = null; // Set by subclasses
 		this.maxDepth = maxDepth;
 		if (maxDepth != null && maxDepth <= 0) {
@@ -104,6 +125,11 @@ public abstract class SearchStateExplorer {
 			}
 
 			SearchNode currNode = frontier.dequeue();
+			if (currNode.isHeuristicDeferred() && currNode.evaluateHeuristic()) {
+				nbIter--; // not an expansion
+				frontier.enqueue(currNode);
+				continue;
+			}
 			State currState = currNode.getState();
 			int currDepth = currNode.getDepth();
 
@@ -120,12 +146,18 @@ public abstract class SearchStateExplorer {
 			} else {
 				explored.add(currState);
 				if (maxDepth == null || currDepth < maxDepth) {
-					for (Action a : currState.executableActions()) {
-						SearchNode childNode = new SearchNode(currNode, a);
+					Iterator<? extends Action> actions = currState.successorActions();
+					while (actions.hasNext()) {
+						SearchNode childNode = new SearchNode(currNode, actions.next(), deferHeuristic);
 						outputString(VERBOSITY.high, currDepth, "Enqueueing child node:");
 						outputNode(VERBOSITY.high, currDepth, childNode);
 						if (explored.contains(childNode.getState())) {
 							outputString(VERBOSITY.high, currDepth, "--> already explored --> no action");
+						} else if (!findBestSolution && testsGoalOnGeneration() && childNode.getState().isGoal()) {
+							outputString(VERBOSITY.high, currDepth, "--> goal --> stop");
+							result = childNode;
+							done = true;
+							break;
 						} else {
 							boolean enqueued = frontier.enqueue(childNode);
 							if (enqueued) {
@@ -145,6 +177,11 @@ public abstract class SearchStateExplorer {
 		if (result == null)
 			return null;
 
+		return planTo(result);
+	}
+
+	// Actions leading from the root to the given node, following parent links.
+	protected List<Action> planTo(SearchNode result) {
 		LinkedList<Action> actions = new LinkedList<Action>();
 		while (result != null) {
 			Action a = result.getAction();
@@ -157,6 +194,10 @@ public abstract class SearchStateExplorer {
 		return actions;
 	}
 
+	protected Problem getProblem() {
+		return problem;
+	}
+
 	public int getNbIterations() {
 		return nbIter;
 	}
@@ -169,6 +210,10 @@ public abstract class SearchStateExplorer {
 		System.out.println("Statistics:\n - nbIterations = " + nbIter);
 		System.out.println(" - maxFrontierSize = " + maxFrontierSize);
 		System.out.println(" - duration (sec) = " + getDurationMsec() / 1000.0);
+		HeuristicCache cache = problem.heuristicCache();
+		if (cache != null) {
+			System.out.println(" - heuristic cache hits = " + cache.getHits() + ", misses = " + cache.getMisses());
+		}
 	}
 
 	private static Map<Integer, String> prefixes = new HashMap<Integer, String>();
@@ -14,6 +14,13 @@ public abstract class State implements Cloneable {
 	}
 	
 	public abstract Collection<? extends Action> executableActions();
+
+	// The executable actions, produced on demand so that explorers stopping
+	// before the last child do not pay for the others. Subclasses that can
+	// enumerate their actions lazily should override.
+	public Iterator<? extends Action> successorActions() {
+		return executableActions().iterator();
+	}
 	public abstract State resultingState(Action a);
 	public abstract boolean isGoal();
 	
@@ -23,12 +30,40 @@ public abstract class State implements Cloneable {
 	}
 
 
+	// Whether the given fluent is true in the state (see Problem.nbFluents).
+	public boolean holds(int fluent) {
+		throw new UnsupportedOperationException("Needs to be implemented by non-abstract subclasses");
+	}
+
+
 	public boolean equals(Object o) {
 		throw new UnsupportedOperationException("Needs to be implemented by non-abstract subclasses");
 	}
 	public int hashcode() {
 		throw new UnsupportedOperationException("Needs to be implemented by non-abstract subclasses");
 	}
+
+	// 64-bit hash of the state, used by closed lists that store fingerprints
+	// instead of states. Subclasses with a better (or cached) hash should override.
+	public long fingerprint() {
+		long h = hashCode() * 0x9E3779B97F4A7C15L;
+		return h ^ (h >>> 29);
+	}
+
+	// Fixed-length packed representation of the state (equal states <=> equal
+	// words), or null if the state cannot be packed.
+	public long[] packedWords() {
+		return null;
+	}
+
+	// Writes the packed words of resultingState(a) into the given array, for
+	// explorers that intern states by their words (StateRegistry) and only
+	// build the states they keep. Subclasses that can apply an action to the
+	// words directly should override.
+	public void resultingWords(Action a, long[] into) {
+		long[] words = resultingState(a).packedWords();
+		System.arraycopy(words, 0, into, 0, words.length);
+	}
 	public Object clone() {
 		try {
 			return super.clone();
@@ -0,0 +1,133 @@
+package it.uniroma1.di.tmancini.teaching.ai.search;
+
+import java.util.*;
+
+// Interns packed states (State.packedWords) and numbers them densely from 0.
+// Each distinct state is stored once, as its words in fixed-size long[]
+// pages, and found again through an open-addressing table of ids (linear
+// probing, doubled when two thirds full) checked against the stored 64-bit
+// hashes first. lookupOrInsert answers both "seen before?" and "which id?"
+// with a single probe sequence, and memory per state is the same for every
+// state: its words, its hash and about one and a half table slots.
+public class StateRegistry {
+
+	private static final int PAGE_BITS = 14; // states per page: 1 << PAGE_BITS
+
+	private final int width;
+	private long[][] pages;
+	private long[] hashes; // by id
+	private int[] table; // id + 1, 0 for an empty slot
+	private int mask;
+	private int size;
+	private boolean inserted;
+
+	public StateRegistry(int width) {
+		if (width <= 0) {
+			throw new RuntimeException("width must be > 0");
+		}
+		this.width = width;
+		this.pages = new long[1][];
+		this.hashes = new long[1 << 10];
+		this.table = new int[1 << 11];
+		this.mask = table.length - 1;
+		this.size = 0;
+	}
+
+	public int width() {
+		return width;
+	}
+
+	private static long hash(long[] words) {
+		long h = 0;
+		for (long w : words) {
+			h = (h ^ w) * 0x9E3779B97F4A7C15L;
+		}
+		return h ^ (h >>> 29);
+	}
+
+	private int slotOf(long h) {
+		return (int) (h >>> 32) & mask;
+	}
+
+	private boolean wordsEqual(int id, long[] words) {
+		long[] page = pages[id >>> PAGE_BITS];
+		int offset = (id & ((1 << PAGE_BITS) - 1)) * width;
+		for (int i = 0; i < width; i++) {
+			if (page[offset + i] != words[i]) return false;
+		}
+		return true;
+	}
+
+	// Id of the state with the given words, registering it if new (see
+	// lastInserted). The words are copied, not kept.
+	public int lookupOrInsert(long[] words) {
+		long h = hash(words);
+		int slot = slotOf(h);
+		while (table[slot] != 0) {
+			int id = table[slot] - 1;
+			if (hashes[id] == h && wordsEqual(id, words)) {
+				inserted = false;
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		int id = size++;
+		store(id, words, h);
+		table[slot] = id + 1;
+		inserted = true;
+		if (3L * size > 2L * table.length) {
+			grow();
+		}
+		return id;
+	}
+
+	// Whether the last lookupOrInsert registered a new state.
+	public boolean lastInserted() {
+		return inserted;
+	}
+
+	private void store(int id, long[] words, long h) {
+		int page = id >>> PAGE_BITS;
+		if (page == pages.length) {
+			pages = Arrays.copyOf(pages, pages.length * 2);
+		}
+		if (pages[page] == null) {
+			pages[page] = new long[width << PAGE_BITS];
+		}
+		System.arraycopy(words, 0, pages[page], (id & ((1 << PAGE_BITS) - 1)) * width, width);
+		if (id == hashes.length) {
+			hashes = Arrays.copyOf(hashes, hashes.length * 2);
+		}
+		hashes[id] = h;
+	}
+
+	private void grow() {
+		table = new int[table.length * 2];
+		mask = table.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = slotOf(hashes[id]);
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = id + 1;
+		}
+	}
+
+	// Copies the words of the state into the given array.
+	public void copyWords(int id, long[] into) {
+		if (id < 0 || id >= size) throw new NoSuchElementException("no state " + id);
+		System.arraycopy(pages[id >>> PAGE_BITS], (id & ((1 << PAGE_BITS) - 1)) * width, into, 0, width);
+	}
+
+	public long[] words(int id) {
+		long[] words = new long[width];
+		copyWords(id, words);
+		return words;
+	}
+
+	public int size() {
+		return size;
+	}
+
+}
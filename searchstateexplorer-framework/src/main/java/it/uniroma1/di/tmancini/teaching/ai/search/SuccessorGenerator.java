@@ -0,0 +1,158 @@
+package it.uniroma1.di.tmancini.teaching.ai.search;
+
+import java.util.*;
+
+// Finds the actions applicable in a state without testing every ground
+// action, for problems described by fluents (see Problem.nbFluents). The
+// actions are arranged in a trie over their sorted preconditions: the
+// children of a node are keyed by the next precondition fluent, and an action
+// sits at the node where its preconditions end. A query only descends into
+// the children whose fluent holds, so its cost depends on the number of
+// applicable actions and of the fluents tested on the way, not on the number
+// of ground actions.
+//
+// The applicable actions are marked in a bitset over their position in the
+// list given at construction, and handed out in that order. The bitset of a
+// child can also be derived from a copy of its parent's by testing again, for
+// every changed fluent, only the actions with it among their preconditions.
+public class SuccessorGenerator<A extends Action> {
+
+	private final List<A> actions;
+	private final Node root;
+	private final int[][] preconditions;
+	private final int[][] mentioning; // fluent -> ids of the actions with it among their preconditions
+
+	private static class Node {
+		int[] actions; // ids of the actions whose last precondition leads here
+		int[] fluents; // sorted keys of the children
+		Node[] children;
+	}
+
+	public SuccessorGenerator(List<? extends A> actions) {
+		this.actions = new ArrayList<A>(actions);
+		this.preconditions = new int[actions.size()][];
+		int[] ids = new int[actions.size()];
+		int nbFluents = 0;
+		for (int id = 0; id < actions.size(); id++) {
+			preconditions[id] = actions.get(id).getPreconditions().stream()
+					.mapToInt(Integer::intValue).sorted().distinct().toArray();
+			ids[id] = id;
+			for (int f : preconditions[id]) {
+				nbFluents = Math.max(nbFluents, f + 1);
+			}
+		}
+		this.root = build(ids, preconditions, 0);
+
+		int[] counts = new int[nbFluents];
+		for (int[] pre : preconditions) {
+			for (int f : pre) {
+				counts[f]++;
+			}
+		}
+		this.mentioning = new int[nbFluents][];
+		for (int f = 0; f < nbFluents; f++) {
+			mentioning[f] = new int[counts[f]];
+			counts[f] = 0;
+		}
+		for (int id = 0; id < preconditions.length; id++) {
+			for (int f : preconditions[id]) {
+				mentioning[f][counts[f]++] = id;
+			}
+		}
+	}
+
+	// Node for the given actions, which share their first depth preconditions.
+	private static Node build(int[] ids, int[][] preconditions, int depth) {
+		Node node = new Node();
+		Map<Integer, List<Integer>> byFluent = new TreeMap<Integer, List<Integer>>();
+		List<Integer> here = new ArrayList<Integer>();
+		for (int id : ids) {
+			if (preconditions[id].length == depth) {
+				here.add(id);
+			} else {
+				byFluent.computeIfAbsent(preconditions[id][depth], f -> new ArrayList<Integer>()).add(id);
+			}
+		}
+		node.actions = here.stream().mapToInt(Integer::intValue).toArray();
+		node.fluents = new int[byFluent.size()];
+		node.children = new Node[byFluent.size()];
+		int i = 0;
+		for (Map.Entry<Integer, List<Integer>> e : byFluent.entrySet()) {
+			node.fluents[i] = e.getKey();
+			node.children[i] = build(e.getValue().stream().mapToInt(Integer::intValue).toArray(), preconditions, depth + 1);
+			i++;
+		}
+		return node;
+	}
+
+	public List<A> actions() {
+		return actions;
+	}
+
+	// Bitset of the ids of the actions applicable in the state.
+	public long[] applicable(State s) {
+		long[] bits = new long[(actions.size() + 63) >>> 6];
+		mark(root, s, bits);
+		return bits;
+	}
+
+	// Updates, in place, the bitset of the actions applicable in the state
+	// after the given fluent changed its truth.
+	public void retest(long[] bits, State s, int fluent) {
+		if (fluent >= mentioning.length) return;
+		for (int id : mentioning[fluent]) {
+			if (holdsAll(s, preconditions[id])) {
+				bits[id >>> 6] |= 1L << id;
+			} else {
+				bits[id >>> 6] &= ~(1L << id);
+			}
+		}
+	}
+
+	private static boolean holdsAll(State s, int[] fluents) {
+		for (int f : fluents) {
+			if (!s.holds(f)) return false;
+		}
+		return true;
+	}
+
+	private static void mark(Node node, State s, long[] bits) {
+		for (int id : node.actions) {
+			bits[id >>> 6] |= 1L << id;
+		}
+		for (int i = 0; i < node.fluents.length; i++) {
+			if (s.holds(node.fluents[i])) {
+				mark(node.children[i], s, bits);
+			}
+		}
+	}
+
+	// The actions applicable in the state, in the order of the list given at
+	// construction.
+	public Iterator<A> applicableActions(State s) {
+		return iterator(applicable(s));
+	}
+
+	// The actions whose ids are set in the bitset, in increasing id order.
+	public Iterator<A> iterator(long[] bits) {
+		return new Iterator<A>() {
+			private int word = 0;
+			private long remaining = bits.length > 0 ? bits[0] : 0;
+
+			public boolean hasNext() {
+				while (remaining == 0 && word + 1 < bits.length) {
+					remaining = bits[++word];
+				}
+				return remaining != 0;
+			}
+
+			public A next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				int id = (word << 6) + Long.numberOfTrailingZeros(remaining);
+				remaining &= remaining - 1;
+				return actions.get(id);
+			}
+		};
+	}
+
+}